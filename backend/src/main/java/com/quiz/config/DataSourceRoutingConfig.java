@@ -0,0 +1,75 @@
+package com.quiz.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * With {@code quiz.datasource.replica.url} set (non-empty), the application DataSource
+ * routes between two Hikari pools: the primary ({@code spring.datasource.*},
+ * pool settings under {@code spring.datasource.hikari.*}) and a read replica
+ * ({@code quiz.datasource.replica.url}, {@code .username} and {@code .password},
+ * defaulting to the primary's credentials; pool settings under
+ * {@code quiz.datasource.replica.hikari.*}). Connections go to the primary
+ * unless taken inside {@link ReadReplica#read}. Without the property Spring
+ * Boot's single auto-configured pool is used as before.
+ */
+@Configuration
+// Present but empty (as the server profile ships it) means no replica.
+@ConditionalOnExpression("'${quiz.datasource.replica.url:}' != ''")
+public class DataSourceRoutingConfig {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+    private enum Target {
+        PRIMARY, REPLICA
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("primary");
+        return ds;
+    }
+
+    @Bean
+    @ConfigurationProperties("quiz.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${quiz.datasource.replica.url}") String url,
+            @Value("${quiz.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${quiz.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(url);
+        ds.setUsername(username);
+        ds.setPassword(password);
+        ds.setPoolName("replica");
+        ds.setReadOnly(true);
+        return ds;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Qualifier("replicaDataSource") HikariDataSource replicaDataSource) {
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return ReadReplica.isActive() ? Target.REPLICA : Target.PRIMARY;
+            }
+        };
+        routing.setTargetDataSources(Map.of(Target.PRIMARY, primaryDataSource, Target.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        logger.info("Read replica configured: analytics reads go to {}", replicaDataSource.getJdbcUrl());
+        return routing;
+    }
+}
@@ -1,9 +1,11 @@
 package com.quiz.config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,6 +16,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -22,6 +27,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final UserDetailsService userDetailsService;
     private final com.quiz.service.TokenBlacklistService blacklistService;
 
+    /** A token whose signature has been checked, with the user it resolved to. */
+    private static final class VerifiedToken {
+        final UserDetails principal;
+        final long validUntil;
+
+        VerifiedToken(UserDetails principal, long validUntil) {
+            this.principal = principal;
+            this.validUntil = validUntil;
+        }
+    }
+
+    // Exact token string -> verified principal. A hit means this very token
+    // was verified before, so it skips the parse and the user lookup.
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    @Value("${jwt.cache.max-entries:10000}")
+    private int maxCachedTokens;
+
+    @Value("${jwt.cache.principal-ttl-ms:300000}")
+    private long principalTtlMs;
+
     public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService,
             com.quiz.service.TokenBlacklistService blacklistService) {
         this.jwtUtils = jwtUtils;
@@ -29,6 +55,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         this.blacklistService = blacklistService;
     }
 
+    private UserDetails cachedPrincipal(String jwt) {
+        VerifiedToken v = verifiedTokens.get(jwt);
+        if (v == null)
+            return null;
+        if (System.currentTimeMillis() >= v.validUntil) {
+            verifiedTokens.remove(jwt, v);
+            return null;
+        }
+        return v.principal;
+    }
+
+    // Cached until the token expires, or for principalTtlMs at most so role or
+    // account changes are picked up without waiting for a day-long token to run out.
+    private void cachePrincipal(String jwt, UserDetails principal, Date expiration) {
+        long now = System.currentTimeMillis();
+        long validUntil = now + principalTtlMs;
+        if (expiration != null)
+            validUntil = Math.min(validUntil, expiration.getTime());
+        if (verifiedTokens.size() >= maxCachedTokens) {
+            verifiedTokens.values().removeIf(v -> now >= v.validUntil);
+            if (verifiedTokens.size() >= maxCachedTokens)
+                return;
+        }
+        verifiedTokens.put(jwt, new VerifiedToken(principal, validUntil));
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         return request.getMethod().equalsIgnoreCase("OPTIONS");
@@ -42,7 +94,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -57,12 +108,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        username = jwtUtils.extractUsername(jwt);
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = cachedPrincipal(jwt);
+            if (userDetails == null) {
+                // One parse checks signature and expiry; an invalid token throws as before.
+                Claims claims = jwtUtils.verify(jwt);
+                final String username = claims.getSubject();
+                if (username != null) {
+                    UserDetails loaded = this.userDetailsService.loadUserByUsername(username);
+                    if (username.equals(loaded.getUsername())) {
+                        userDetails = loaded;
+                        cachePrincipal(jwt, loaded, claims.getExpiration());
+                    }
+                }
+            }
 
-            if (jwtUtils.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
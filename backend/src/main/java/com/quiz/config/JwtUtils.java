@@ -1,6 +1,7 @@
 package com.quiz.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -9,6 +10,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
@@ -27,6 +30,39 @@ public class JwtUtils {
     @Value("${jwt.refresh-expiration:604800000}")
     private long refreshExpiration;
 
+    // Built once from the secret; both are immutable and thread-safe.
+    private Key signInKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
+    /**
+     * Verifies the signature and expiry in a single parse.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired.
+     */
+    public Claims verify(String token) {
+        return extractAllClaims(token);
+    }
+
+    /**
+     * @return the token's expiry, even if it has already passed, or null if
+     *         the token is not one of ours.
+     */
+    public Date extractExpirationIfSigned(String token) {
+        try {
+            return extractAllClaims(token).getExpiration();
+        } catch (io.jsonwebtoken.ExpiredJwtException e) {
+            return e.getClaims().getExpiration();
+        } catch (io.jsonwebtoken.JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -59,28 +95,15 @@ public class JwtUtils {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        final Claims claims = extractAllClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 }
@@ -0,0 +1,57 @@
+package com.quiz.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends selected read-only queries (analytics, archives) to the read replica
+ * when {@code quiz.datasource.replica.url} is set; see
+ * {@link DataSourceRoutingConfig}. Everything else, and everything when no
+ * replica is configured, uses the primary.
+ * <p>
+ * Only use it for reads that tolerate the replica being a little behind:
+ * something written moments ago may not be there yet.
+ */
+@Component
+public class ReadReplica {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private final boolean configured;
+    private final long maxLagMs;
+
+    public ReadReplica(@Value("${quiz.datasource.replica.url:}") String replicaUrl,
+            @Value("${quiz.datasource.replica.max-lag-ms:5000}") long maxLagMs) {
+        this.configured = !replicaUrl.isBlank();
+        this.maxLagMs = maxLagMs;
+    }
+
+    /**
+     * Runs {@code query} against the replica. Transactions must start inside
+     * it: a connection already bound to the thread stays where it is.
+     */
+    public <T> T read(Supplier<T> query) {
+        if (!configured || ACTIVE.get() != null)
+            return query.get();
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * @return true if a replica read may not yet include a write made at
+     *         {@code writtenAtMillis}, so its result should not be cached.
+     */
+    public boolean mayLagBehind(long writtenAtMillis) {
+        return configured && System.currentTimeMillis() - writtenAtMillis < maxLagMs;
+    }
+
+    static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+}
@@ -40,6 +40,8 @@ public class SecurityConfig {
                                 "/api/syllabus/**", "/api/quiz/**", "/api/analytics/**",
                                 "/api/student/**", "/api/admin/**", "/h2-console/**")
                         .permitAll()
+                        // The bank hands out answers and explanations: faculty only
+                        .requestMatchers("/api/bank/**").authenticated()
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(
                         org.springframework.security.config.http.SessionCreationPolicy.STATELESS))
@@ -0,0 +1,95 @@
+package com.quiz.config;
+
+import com.quiz.model.Question;
+import com.quiz.model.SessionQuestion;
+import com.quiz.model.Submission;
+import com.quiz.repository.QuestionRepository;
+import com.quiz.repository.SessionQuestionRepository;
+import com.quiz.repository.SubmissionRepository;
+import com.quiz.service.AnswerKey;
+import com.quiz.service.PackedAnswers;
+import com.quiz.service.SessionService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+// One-off migration that runs on startup: converts submissions that still keep
+// their answers in the old "details" JSON blob into the packed one-byte-per-question
+// form. Sessions created before question links existed get their links rebuilt
+// from the questions their students answered (in id order, which is how they
+// were created). Does nothing once every row is converted.
+@Component
+public class SubmissionAnswersBackfill implements CommandLineRunner {
+
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SubmissionAnswersBackfill.class);
+
+    private final SubmissionRepository submissionRepo;
+    private final QuestionRepository questionRepo;
+    private final SessionQuestionRepository sessionQuestionRepo;
+    private final SessionService sessionService;
+
+    public SubmissionAnswersBackfill(SubmissionRepository submissionRepo, QuestionRepository questionRepo,
+            SessionQuestionRepository sessionQuestionRepo, SessionService sessionService) {
+        this.submissionRepo = submissionRepo;
+        this.questionRepo = questionRepo;
+        this.sessionQuestionRepo = sessionQuestionRepo;
+        this.sessionService = sessionService;
+    }
+
+    @Override
+    public void run(String... args) {
+        List<Long> sessionIds = submissionRepo.findSessionIdsWithLegacyDetails();
+        int converted = 0;
+        for (Long sessionId : sessionIds) {
+            try {
+                converted += backfillSession(sessionId);
+            } catch (Exception e) {
+                // Leave the session on the legacy JSON; readers still understand it.
+                logger.error("Answer backfill failed for Session={}: {}", sessionId, e.getMessage());
+            }
+        }
+        if (converted > 0)
+            logger.info("Packed answers for {} legacy submissions in {} sessions", converted, sessionIds.size());
+    }
+
+    private int backfillSession(Long sessionId) {
+        List<Submission> submissions = submissionRepo.findBySessionId(sessionId);
+
+        AnswerKey key = sessionService.getAnswerKey(sessionId);
+        if (key == null) {
+            TreeSet<Long> ids = new TreeSet<>();
+            for (Submission sub : submissions)
+                ids.addAll(PackedAnswers.questionIdsIn(sub.getDetails()));
+            List<Question> questions = new ArrayList<>(questionRepo.findAllById(ids));
+            if (questions.isEmpty())
+                return 0;
+            questions.sort(Comparator.comparing(Question::getId));
+
+            List<SessionQuestion> links = new ArrayList<>(questions.size());
+            for (int i = 0; i < questions.size(); i++)
+                links.add(new SessionQuestion(sessionId, questions.get(i).getId(), i));
+            sessionQuestionRepo.saveAll(links);
+
+            key = sessionService.getAnswerKey(sessionId);
+            if (key == null)
+                return 0;
+        }
+
+        List<Submission> changed = new ArrayList<>();
+        for (Submission sub : submissions) {
+            if (sub.getAnswers() != null || sub.getDetails() == null)
+                continue;
+            sub.setAnswers(PackedAnswers.fromDetails(sub.getDetails(), key));
+            // Keep blobs we could not read, for manual inspection.
+            if (!PackedAnswers.parseDetails(sub.getDetails()).isEmpty())
+                sub.setDetails(null);
+            changed.add(sub);
+        }
+        submissionRepo.saveAll(changed);
+        return changed.size();
+    }
+}
@@ -1,15 +1,14 @@
 package com.quiz.controller;
 
-import com.quiz.model.Submission;
+import com.quiz.dto.SubmissionDTOs.AdminSubmissionRow;
 import com.quiz.repository.SubmissionRepository;
-import com.quiz.repository.StudentRepository;
 import com.quiz.repository.UserRepository;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 // This controller is the "admin panel" for the backend.
 // It handles things like onboarding new faculty members and keeping an eye on all quiz submissions.
@@ -17,23 +16,27 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/admin")
 public class AdminController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final SubmissionRepository submissionRepo;
-    private final StudentRepository studentRepo;
 
     private final UserRepository userRepo;
     private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
 
     private final com.quiz.util.PasswordValidator passwordValidator;
+    private final com.quiz.config.ReadReplica readReplica;
 
-    public AdminController(SubmissionRepository submissionRepo, StudentRepository studentRepo,
+    public AdminController(SubmissionRepository submissionRepo,
             com.quiz.repository.UserRepository userRepo,
             org.springframework.security.crypto.password.PasswordEncoder passwordEncoder,
-            com.quiz.util.PasswordValidator passwordValidator) {
+            com.quiz.util.PasswordValidator passwordValidator,
+            com.quiz.config.ReadReplica readReplica) {
         this.submissionRepo = submissionRepo;
-        this.studentRepo = studentRepo;
         this.userRepo = userRepo;
         this.passwordEncoder = passwordEncoder;
         this.passwordValidator = passwordValidator;
+        this.readReplica = readReplica;
     }
 
     // This endpoint lets an admin create a new account for a faculty member.
@@ -61,28 +64,22 @@ public class AdminController {
         return ResponseEntity.ok(Map.of("message", "Faculty created successfully", "id", user.getId()));
     }
 
-    // Here we grab every single quiz submission from the database so the admin can
-    // see how everyone is doing.
+    // Here we page through quiz submissions so the admin can see how everyone is
+    // doing. Keyset paging (?afterId=&limit=) keeps this fast however large the
+    // table gets; X-Next-After-Id points at the next page when there is one.
+    // Served from the read replica if one is configured.
     @GetMapping("/submissions")
-    public ResponseEntity<?> getAllSubmissions() {
-        List<Submission> allSubmissions = submissionRepo.findAll();
-
-        List<Map<String, Object>> result = allSubmissions.stream().map(s -> {
-            Long sid = s.getStudentId();
-            String studentName = (sid != null)
-                    ? studentRepo.findById(sid).map(com.quiz.model.Student::getName).orElse("Unknown")
-                    : "Unknown";
-
-            Map<String, Object> map = new java.util.HashMap<>();
-            map.put("id", s.getId());
-            map.put("sessionId", s.getSessionId());
-            map.put("studentName", studentName);
-            map.put("score", s.getScore());
-            map.put("submittedAt", s.getSubmittedAt() != null ? s.getSubmittedAt().toString() : "N/A");
-
-            return map;
-        }).collect(Collectors.toList());
-
-        return ResponseEntity.ok(result);
+    public ResponseEntity<?> getAllSubmissions(
+            @RequestParam(value = "afterId", defaultValue = "0") long afterId,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<AdminSubmissionRow> page = readReplica
+                .read(() -> submissionRepo.findArchivePage(afterId, PageRequest.of(0, size)));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == size) {
+            response.header("X-Next-After-Id", String.valueOf(page.get(page.size() - 1).getId()));
+        }
+        return response.body(page);
     }
 }
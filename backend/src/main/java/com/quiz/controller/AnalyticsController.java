@@ -1,16 +1,17 @@
 package com.quiz.controller;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quiz.model.Question;
-import com.quiz.model.Submission;
 import com.quiz.repository.QuestionRepository;
 import com.quiz.repository.SubmissionRepository;
+import com.quiz.service.AnswerKey;
+import com.quiz.service.ItemAnalysisService;
+import com.quiz.service.PackedAnswers;
+import com.quiz.service.SessionAnalyticsService;
+import com.quiz.service.SessionService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -18,103 +19,53 @@ public class AnalyticsController {
 
     private final SubmissionRepository submissionRepo;
     private final QuestionRepository questionRepo;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SessionService sessionService;
+    private final SessionAnalyticsService sessionAnalytics;
+    private final ItemAnalysisService itemAnalysis;
 
-    public AnalyticsController(SubmissionRepository submissionRepo, QuestionRepository questionRepo) {
+    public AnalyticsController(SubmissionRepository submissionRepo, QuestionRepository questionRepo,
+            SessionService sessionService, SessionAnalyticsService sessionAnalytics,
+            ItemAnalysisService itemAnalysis) {
         this.submissionRepo = submissionRepo;
         this.questionRepo = questionRepo;
+        this.sessionService = sessionService;
+        this.sessionAnalytics = sessionAnalytics;
+        this.itemAnalysis = itemAnalysis;
     }
 
     /**
      * Aggregated analytics for the entire session (Average, High/Low, CO
-     * performance across all students).
+     * performance across all students), served from the running aggregate.
      */
     @GetMapping("/session/{sessionId}")
     public ResponseEntity<?> getSessionAnalytics(@PathVariable("sessionId") Long sessionId) {
-        List<Submission> submissions = submissionRepo.findBySessionId(sessionId);
-
-        if (submissions.isEmpty()) {
-            return ResponseEntity.ok(Map.of(
-                    "totalSubmissions", 0,
-                    "averageScore", 0,
-                    "highestScore", 0,
-                    "lowestScore", 0,
-                    "coAnalysis", Collections.emptyList()));
-        }
-
-        double totalScore = 0;
-        int maxScore = Integer.MIN_VALUE;
-        int minScore = Integer.MAX_VALUE;
-
-        // Structures for aggregation
-        // CO -> [correctCount, totalCount]
-        Map<String, int[]> coStats = new HashMap<>();
-
-        for (Submission sub : submissions) {
-            int score = sub.getScore();
-            totalScore += score;
-            if (score > maxScore)
-                maxScore = score;
-            if (score < minScore)
-                minScore = score;
-
-            // Parse details for CO analysis
-            try {
-                if (sub.getDetails() != null) {
-                    List<Map<String, Object>> answers = objectMapper.readValue(sub.getDetails(), new TypeReference<>() {
-                    });
-                    for (Map<String, Object> ans : answers) {
-                        Long qId = ((Number) ans.get("questionId")).longValue();
-                        String selected = (String) ans.get("selectedOption");
-
-                        questionRepo.findById(qId).ifPresent(q -> {
-                            String co = q.getCourseOutcome();
-                            if (co != null && !co.isBlank()) {
-                                coStats.putIfAbsent(co, new int[] { 0, 0 });
-                                coStats.get(co)[1]++; // Total attempts
-                                if (q.getCorrect() != null && q.getCorrect().equalsIgnoreCase(selected)) {
-                                    coStats.get(co)[0]++; // Correct
-                                }
-                            }
-                        });
-                    }
-                }
-            } catch (Exception e) {
-                // Log and continue
-                e.printStackTrace();
-            }
-        }
-
-        // Format CO Analysis
-        List<Map<String, Object>> coAnalysis = new ArrayList<>();
-        for (Map.Entry<String, int[]> entry : coStats.entrySet()) {
-            String co = entry.getKey();
-            int correct = entry.getValue()[0];
-            int total = entry.getValue()[1];
-            double accuracy = total > 0 ? ((double) correct / total) * 100 : 0;
-
-            // Round to 1 decimal
-            accuracy = Math.round(accuracy * 10.0) / 10.0;
-
-            coAnalysis.add(Map.of(
-                    "co", co,
-                    "accuracy", accuracy,
-                    "correct", correct,
-                    "total", total));
-        }
-
-        // Sort COs
-        coAnalysis.sort(Comparator.comparing(m -> (String) m.get("co")));
-
-        // Calculate average formatted
-        String avgScore = String.format("%.2f", totalScore / submissions.size());
-
-        return ResponseEntity.ok(Map.of(
-                "totalSubmissions", submissions.size(),
-                "averageScore", avgScore,
-                "highestScore", maxScore,
-                "lowestScore", minScore,
-                "coAnalysis", coAnalysis));
+        return ResponseEntity.ok(sessionAnalytics.getSessionSummary(sessionId));
+    }
+
+    /**
+     * Item analysis for the session: p-value, discrimination and option
+     * choices per question, KR-20 per question set.
+     */
+    @GetMapping("/session/{sessionId}/items")
+    public ResponseEntity<?> getSessionItems(@PathVariable("sessionId") Long sessionId) {
+        Map<String, Object> analysis = itemAnalysis.analyzeSession(sessionId);
+        if (analysis == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(analysis);
+    }
+
+    // The same statistics per bank question, pooled over every session that asked it.
+    @GetMapping("/bank/items")
+    public ResponseEntity<?> getBankItems() {
+        return ResponseEntity.ok(itemAnalysis.analyzeBank());
+    }
+
+    @GetMapping("/bank/items/{questionId}")
+    public ResponseEntity<?> getBankItem(@PathVariable("questionId") Long questionId) {
+        Map<String, Object> analysis = itemAnalysis.analyzeBankQuestion(questionId);
+        if (analysis == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(analysis);
     }
 
     // Detailed analytics for a single student's submission in a session.
@@ -123,85 +74,67 @@ public class AnalyticsController {
             @PathVariable("sessionId") Long sessionId) {
         return submissionRepo.findByStudentIdAndSessionId(studentId, sessionId)
                 .map(sub -> {
-                    try {
-                        List<Map<String, Object>> answers;
-                        if (sub.getDetails() != null) {
-                            answers = objectMapper.readValue(sub.getDetails(), new TypeReference<>() {
-                            });
-                        } else {
-                            answers = Collections.emptyList();
-                        }
+                    // Packed answers are positions in the session's key; legacy
+                    // rows get a key compiled from the questions in their JSON.
+                    AnswerKey key = sessionService.getAnswerKey(sessionId);
+                    byte[] pack = sub.getAnswers();
+                    if (pack == null || key == null) {
+                        if (key == null)
+                            key = AnswerKey.of(questionRepo.findAllById(PackedAnswers.questionIdsIn(sub.getDetails())));
+                        pack = PackedAnswers.fromDetails(sub.getDetails(), key);
+                    }
 
-                        // Enrich answers
-                        List<Map<String, Object>> enrichedAnswers = new ArrayList<>();
-                        Map<String, int[]> coStats = new HashMap<>();
-
-                        for (Map<String, Object> ans : answers) {
-                            Long qId = ((Number) ans.get("questionId")).longValue();
-                            String selected = (String) ans.get("selectedOption");
-
-                            Map<String, Object> enriched = new HashMap<>();
-                            enriched.put("questionId", qId);
-                            enriched.put("selected", selected);
-
-                            // Default values
-                            enriched.put("questionText", "Unknown Question (ID: " + qId + ")");
-                            enriched.put("correctOption", "?");
-                            enriched.put("explanation", "");
-                            enriched.put("isCorrect", false);
-                            enriched.put("co", "N/A");
-
-                            Optional<Question> qOpt = questionRepo.findById(qId);
-                            if (qOpt.isPresent()) {
-                                Question q = qOpt.get();
-                                enriched.put("questionText", q.getText());
-                                enriched.put("correctOption", q.getCorrect());
-                                enriched.put("explanation", q.getExplanation());
-                                enriched.put("co", q.getCourseOutcome());
-
-                                boolean isCorrect = q.getCorrect() != null && q.getCorrect().equalsIgnoreCase(selected);
-                                enriched.put("isCorrect", isCorrect);
-
-                                // CO Stats
-                                String co = q.getCourseOutcome();
-                                if (co != null && !co.isBlank()) {
-                                    coStats.putIfAbsent(co, new int[] { 0, 0 });
-                                    coStats.get(co)[1]++; // Total
-                                    if (isCorrect) {
-                                        coStats.get(co)[0]++; // Correct
-                                    }
-                                }
+                    // Enrich answers
+                    List<Map<String, Object>> enrichedAnswers = new ArrayList<>();
+                    Map<String, int[]> coStats = new TreeMap<>();
+
+                    for (int pos = 0; pos < key.size(); pos++) {
+                        if (!PackedAnswers.isShown(pack, pos))
+                            continue;
+                        Question q = key.questionAt(pos);
+                        boolean isCorrect = PackedAnswers.isCorrect(pack, pos, key);
+
+                        Map<String, Object> enriched = new HashMap<>();
+                        enriched.put("questionId", q.getId());
+                        enriched.put("selected", PackedAnswers.selectedOption(pack, pos));
+                        enriched.put("questionText", q.getText());
+                        enriched.put("correctOption", q.getCorrect());
+                        enriched.put("explanation", q.getExplanation());
+                        enriched.put("co", q.getCourseOutcome());
+                        enriched.put("isCorrect", isCorrect);
+                        enrichedAnswers.add(enriched);
+
+                        // CO Stats
+                        String co = q.getCourseOutcome();
+                        if (co != null && !co.isBlank()) {
+                            int[] t = coStats.computeIfAbsent(co, k -> new int[2]);
+                            t[1]++; // Total
+                            if (isCorrect) {
+                                t[0]++; // Correct
                             }
-                            enrichedAnswers.add(enriched);
-                        }
-
-                        // CO Performance List
-                        List<Map<String, Object>> coPerformance = new ArrayList<>();
-                        for (Map.Entry<String, int[]> entry : coStats.entrySet()) {
-                            String co = entry.getKey();
-                            int correct = entry.getValue()[0];
-                            int total = entry.getValue()[1];
-                            double pct = total > 0 ? ((double) correct / total) * 100 : 0;
-                            // Round to 1 decimal
-                            pct = Math.round(pct * 10.0) / 10.0;
-                            coPerformance.add(Map.of("co", co, "percentage", pct));
                         }
-                        coPerformance.sort(Comparator.comparing(m -> (String) m.get("co")));
+                    }
 
-                        Map<String, Object> response = new HashMap<>();
-                        response.put("score", sub.getScore());
-                        // If score is 0 and cheated is false but answers exist, it might be just a 0 score.
-                        // But if cheated is true, score is forced to 0.
-                        response.put("cheated", sub.isCheated());
-                        response.put("answers", enrichedAnswers);
-                        response.put("coPerformance", coPerformance);
+                    // CO Performance List
+                    List<Map<String, Object>> coPerformance = new ArrayList<>();
+                    for (Map.Entry<String, int[]> entry : coStats.entrySet()) {
+                        int correct = entry.getValue()[0];
+                        int total = entry.getValue()[1];
+                        double pct = total > 0 ? ((double) correct / total) * 100 : 0;
+                        // Round to 1 decimal
+                        pct = Math.round(pct * 10.0) / 10.0;
+                        coPerformance.add(Map.of("co", entry.getKey(), "percentage", pct));
+                    }
 
-                        return ResponseEntity.ok(response);
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("score", sub.getScore());
+                    // If score is 0 and cheated is false but answers exist, it might be just a 0 score.
+                    // But if cheated is true, score is forced to 0.
+                    response.put("cheated", sub.isCheated());
+                    response.put("answers", enrichedAnswers);
+                    response.put("coPerformance", coPerformance);
 
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        return ResponseEntity.internalServerError().body("Error processing submission details");
-                    }
+                    return ResponseEntity.ok(response);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
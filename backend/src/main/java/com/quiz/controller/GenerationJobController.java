@@ -0,0 +1,127 @@
+package com.quiz.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quiz.service.GenerationJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+// Background question generation. Instead of holding the HTTP request open
+// while the AI works, the client submits a job, gets an id back straight away
+// and polls for the questions generated so far.
+@RestController
+@RequestMapping("/api/syllabus/jobs")
+public class GenerationJobController {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GenerationJobController.class);
+    private final GenerationJobService jobService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public GenerationJobController(GenerationJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    // Same body as /api/syllabus/generate; answers 202 with the job id.
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestBody Map<String, Object> body) {
+        String text = (String) body.get("text");
+        String fileData = (String) body.get("fileData");
+        String mimeType = (String) body.get("mimeType");
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> weights = (List<Map<String, Object>>) body.get("weights");
+
+        int count = parseCount(body.getOrDefault("count", "60").toString());
+
+        if ((text == null || text.isBlank()) && (fileData == null || fileData.isBlank()))
+            return ResponseEntity.badRequest().body(Map.of("error", "no text or fileData provided"));
+
+        try {
+            String id = jobService.submit(text, fileData, mimeType, count, weights);
+            return ResponseEntity.accepted().body(Map.of("id", id));
+        } catch (GenerationJobService.TooManyJobsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Multipart variant, like /api/syllabus/generate/upload. The spooled file
+    // belongs to the job from here on and is deleted when it ends.
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> submitUpload(@RequestPart("file") MultipartFile file,
+            @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "count", defaultValue = "60") String countStr,
+            @RequestParam(value = "mimeType", required = false) String mimeType,
+            @RequestParam(value = "weights", required = false) String weightsJson) {
+        if (file.isEmpty())
+            return ResponseEntity.badRequest().body(Map.of("error", "empty file"));
+
+        List<Map<String, Object>> weights = null;
+        if (weightsJson != null && !weightsJson.isBlank()) {
+            try {
+                weights = objectMapper.readValue(weightsJson, new TypeReference<>() {
+                });
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "invalid weights"));
+            }
+        }
+
+        String type = mimeType != null && !mimeType.isBlank() ? mimeType : file.getContentType();
+        Path spool;
+        try {
+            spool = Files.createTempFile("syllabus-", ".upload");
+        } catch (IOException e) {
+            logger.error("Failed to spool syllabus upload", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "upload failed"));
+        }
+        try {
+            file.transferTo(spool);
+        } catch (IOException e) {
+            logger.error("Failed to spool syllabus upload", e);
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException ignored) {
+            }
+            return ResponseEntity.internalServerError().body(Map.of("error", "upload failed"));
+        }
+
+        try {
+            String id = jobService.submitFile(text, spool, type, parseCount(countStr), weights);
+            return ResponseEntity.accepted().body(Map.of("id", id));
+        } catch (GenerationJobService.TooManyJobsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Poll with ?since=<next from the previous answer> to get only new questions.
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@PathVariable("id") String id,
+            @RequestParam(value = "since", defaultValue = "0") int since) {
+        Map<String, Object> status = jobService.status(id, since);
+        if (status == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(status);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancel(@PathVariable("id") String id) {
+        if (!jobService.cancel(id))
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(jobService.status(id, Integer.MAX_VALUE));
+    }
+
+    private static int parseCount(String countStr) {
+        try {
+            return Integer.parseInt(countStr);
+        } catch (NumberFormatException e) {
+            return 60;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.quiz.controller;
+
+import com.quiz.model.Question;
+import com.quiz.service.QuestionBankService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// The question bank: every question ever used in a session (or added here) is
+// kept once, so faculty can search it and build new sessions from it by id
+// (questionIds in /api/session/start) instead of generating again.
+@RestController
+@RequestMapping("/api/bank")
+public class QuestionBankController {
+    private final QuestionBankService questionBank;
+
+    public QuestionBankController(QuestionBankService questionBank) {
+        this.questionBank = questionBank;
+    }
+
+    // q is a word search (last word may be partial); the rest are exact filters.
+    @GetMapping
+    public ResponseEntity<?> search(@RequestParam(value = "q", required = false) String query,
+            @RequestParam(value = "chapter", required = false) String chapter,
+            @RequestParam(value = "co", required = false) String courseOutcome,
+            @RequestParam(value = "difficulty", required = false) String difficulty,
+            @RequestParam(value = "tag", required = false) String tag,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        return ResponseEntity.ok(questionBank.search(query, chapter, courseOutcome, difficulty, tag, page, size));
+    }
+
+    // Counts per chapter and CO, for building a balanced paper.
+    @GetMapping("/summary")
+    public ResponseEntity<?> summary() {
+        return ResponseEntity.ok(questionBank.summary());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> get(@PathVariable("id") Long id) {
+        Question q = questionBank.get(id);
+        if (q == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(q);
+    }
+
+    // Saves questions (e.g. a generated set) without starting a session.
+    // Answers with the stored questions, ids included, in the same order.
+    @PostMapping
+    public ResponseEntity<?> add(@RequestBody List<Question> questions) {
+        for (Question q : questions) {
+            if (q.getText() == null || q.getText().isBlank())
+                return ResponseEntity.badRequest().body(Map.of("error", "question text is required"));
+        }
+        return ResponseEntity.ok(questionBank.store(questions));
+    }
+
+    // Body: {"tags": [...], "difficulty": "..."}; a missing field is left as is.
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> updateMeta(@PathVariable("id") Long id, @RequestBody Map<String, Object> body) {
+        @SuppressWarnings("unchecked")
+        List<String> tags = (List<String>) body.get("tags");
+        String difficulty = (String) body.get("difficulty");
+        Question q = questionBank.updateMeta(id, tags, difficulty);
+        if (q == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(q);
+    }
+}
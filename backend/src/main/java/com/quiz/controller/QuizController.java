@@ -1,7 +1,17 @@
 package com.quiz.controller;
 
+import com.quiz.dto.SubmissionDTOs.ScoreboardRow;
 import com.quiz.model.Question;
 import com.quiz.repository.QuestionRepository;
+import com.quiz.service.AnswerKey;
+import com.quiz.service.PackedAnswers;
+import com.quiz.service.ScoreboardBroadcaster;
+import com.quiz.service.IdempotencyRegistry;
+import com.quiz.service.ItemAnalysisService;
+import com.quiz.service.SessionAnalyticsService;
+import com.quiz.service.SessionService;
+import com.quiz.service.SubmissionPipeline;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,32 +33,78 @@ public class QuizController {
     private final QuestionRepository questionRepo;
     private final com.quiz.repository.StudentRepository studentRepo;
     private final com.quiz.repository.SubmissionRepository submissionRepo;
-    private final com.quiz.repository.SessionRepository sessionRepo;
+    private final SessionService sessionService;
+    private final SubmissionPipeline submissionPipeline;
+    private final ScoreboardBroadcaster scoreboardBroadcaster;
+    private final SessionAnalyticsService sessionAnalytics;
+    private final ItemAnalysisService itemAnalysis;
+    private final IdempotencyRegistry idempotency;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     public QuizController(QuestionRepository questionRepo, com.quiz.repository.SubmissionRepository submissionRepo,
-            com.quiz.repository.SessionRepository sessionRepo, com.quiz.repository.StudentRepository studentRepo) {
+            com.quiz.repository.StudentRepository studentRepo, SessionService sessionService,
+            SubmissionPipeline submissionPipeline, ScoreboardBroadcaster scoreboardBroadcaster,
+            SessionAnalyticsService sessionAnalytics, ItemAnalysisService itemAnalysis,
+            IdempotencyRegistry idempotency) {
         this.questionRepo = questionRepo;
         this.submissionRepo = submissionRepo;
-        this.sessionRepo = sessionRepo;
         this.studentRepo = studentRepo;
+        this.sessionService = sessionService;
+        this.submissionPipeline = submissionPipeline;
+        this.scoreboardBroadcaster = scoreboardBroadcaster;
+        this.sessionAnalytics = sessionAnalytics;
+        this.itemAnalysis = itemAnalysis;
+        this.idempotency = idempotency;
     }
 
     // This is the main endpoint students hit when they finish their quiz.
+    // Clients send an Idempotency-Key (header or "idempotencyKey" field) so a
+    // retried submit gets the original score back instead of being graded again.
     @PostMapping("/submit")
-    public ResponseEntity<?> submitQuiz(@RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> submitQuiz(@RequestBody Map<String, Object> body,
+            @RequestHeader(value = IdempotencyRegistry.HEADER, required = false) String keyHeader) {
+        String key;
+        try {
+            key = IdempotencyRegistry.keyOf(keyHeader, body.get("idempotencyKey"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (body.get("answers") == null)
+            return ResponseEntity.badRequest().body("No answers provided");
+
+        String fingerprint = body.get("sessionId") + ":" + body.get("studentId");
+        try {
+            return idempotency.execute("submit", key, fingerprint, () -> doSubmit(body, key));
+        } catch (IdempotencyRegistry.KeyReusedException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> doSubmit(Map<String, Object> body, String idempotencyKey) {
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> answers = (List<Map<String, Object>>) body.get("answers");
-        if (answers == null)
-            return ResponseEntity.badRequest().body("No answers provided");
 
         Long sid = Long.valueOf(body.get("studentId").toString());
         Long sessId = Long.valueOf(body.get("sessionId").toString());
 
+        // A retry whose first attempt is already in the database (the server
+        // restarted, or it is older than the in-memory window) is answered
+        // from the stored submission.
+        if (idempotencyKey != null) {
+            com.quiz.model.Submission earlier = submissionRepo.findByIdempotencyKey(idempotencyKey).orElse(null);
+            if (earlier != null) {
+                if (!earlier.getSessionId().equals(sessId) || !isSameStudent(earlier, sid, body))
+                    throw new IdempotencyRegistry.KeyReusedException();
+                return IdempotencyRegistry.replayed(storedResult(earlier));
+            }
+        }
+
         // Sometimes the server restarts or something goes wrong, and we lose the
         // student's session.
         // This block tries to "auto-recover" the student info from the request so they
         // don't lose their work.
-        if (!studentRepo.existsById(sid)) {
+        com.quiz.model.Student student = studentRepo.findById(sid).orElse(null);
+        if (student == null) {
             // Check if name/enrollment provided to recover
             if (body.containsKey("name") && body.containsKey("enrollment")) {
                 com.quiz.model.Student newStudent = new com.quiz.model.Student();
@@ -58,39 +114,63 @@ public class QuizController {
                 // We might want to preserve the ID if possible, but auto-gen is safer.
                 // However, we need to return the new ID?
                 // Actually, just save it and use the NEW ID for the submission.
-                newStudent = studentRepo.save(newStudent);
-                sid = newStudent.getId(); // Update local var to use valid ID
+                try {
+                    student = studentRepo.save(newStudent);
+                } catch (org.springframework.dao.DataIntegrityViolationException e) {
+                    // Already registered under that enrollment (unique per session): use that record.
+                    student = studentRepo.findByEnrollmentAndSessionId(newStudent.getEnrollment(), sessId)
+                            .orElse(null);
+                    if (student == null)
+                        throw e;
+                }
+                sid = student.getId(); // Update local var to use valid ID
                 logger.warn("Recovered missing student: OldID={} -> NewID={}", body.get("studentId"), sid);
             } else {
                 return ResponseEntity.badRequest()
                         .body(Map.of("error", "Session expired (Server Restarted). Please refresh and re-join."));
             }
-        } else {
-            if (submissionRepo.existsByStudentIdAndSessionId(sid, sessId)) {
-                return ResponseEntity.badRequest().body(Map.of("error", "You have already submitted this quiz!"));
-            }
+        }
+        // Cheap early answer for a resubmission that has already been stored
+        // (an index lookup on the unique key); racing ones are caught below.
+        if (submissionRepo.existsByStudentIdAndSessionId(sid, sessId)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "You have already submitted this quiz!"));
         }
 
+        // Grade against the session's pre-compiled key: no per-answer lookups.
+        AnswerKey sessionKey = sessionService.getAnswerKey(sessId);
+        AnswerKey key = sessionKey != null ? sessionKey : answerKeyFor(answers);
         AtomicInteger score = new AtomicInteger(0);
         answers.forEach(ans -> {
-            Long qId = ((Number) ans.get("questionId")).longValue();
+            long qId = ((Number) ans.get("questionId")).longValue();
             String selected = (String) ans.get("selectedOption");
 
-            questionRepo.findById(qId).ifPresent(q -> {
-                if (q.getCorrect() != null && q.getCorrect().equalsIgnoreCase(selected)) {
-                    score.incrementAndGet();
-                }
-            });
+            int pos = key.positionOf(qId);
+            if (pos >= 0 && key.isCorrect(pos, selected)) {
+                score.incrementAndGet();
+            }
         });
 
         // Now we save the submission details so the faculty can see them later.
+        // Claiming first means only one of two simultaneous submits is counted.
+        // A claim is released only once its row is committed, so checking the
+        // database again after claiming also catches one that was flushed
+        // between the early check and now.
+        if (!submissionPipeline.claim(sessId, sid)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "You have already submitted this quiz!"));
+        }
+        if (submissionRepo.existsByStudentIdAndSessionId(sid, sessId)) {
+            submissionPipeline.release(sessId, sid);
+            return ResponseEntity.badRequest().body(Map.of("error", "You have already submitted this quiz!"));
+        }
+        boolean submitted = false;
         try {
-            Long sessionId = Long.valueOf(body.get("sessionId").toString());
-            Long studentId = Long.valueOf(body.get("studentId").toString());
+            Long sessionId = sessId;
+            Long studentId = sid; // the recovered ID if the student had to be re-created
 
             com.quiz.model.Submission sub = new com.quiz.model.Submission();
             sub.setSessionId(sessionId);
             sub.setStudentId(studentId);
+            sub.setIdempotencyKey(idempotencyKey);
 
             boolean cheated = body.containsKey("cheated") && Boolean.parseBoolean(body.get("cheated").toString());
             if (cheated) {
@@ -100,38 +180,107 @@ public class QuizController {
                 sub.setScore(score.get());
             }
 
-            // We figure out which "set" the student was taking based on their ID.
-            sessionRepo.findById(sessionId).ifPresent(session -> {
-                int sets = session.getNumberOfSets();
-                if (sets < 1)
-                    sets = 1;
-                long setIndex = studentId % sets;
-                char setChar = (char) ('A' + setIndex);
-                sub.setQuestionSet("Set " + setChar);
-            });
-
-            // Serialize answers to JSON
+            // We figure out which "set" the student was taking based on the ID
+            // their questions were served under.
+            int sets = sessionService.getNumberOfSets(sessionId);
+            long setIndex = Long.valueOf(body.get("studentId").toString()) % sets;
+            char setChar = (char) ('A' + setIndex);
+            sub.setQuestionSet("Set " + setChar);
+
+            // One byte per session question. Positions only mean something
+            // against the session's own key, so sessions without one keep the JSON.
+            byte[] pack = PackedAnswers.pack(answers, key);
+            if (sessionKey != null) {
+                sub.setAnswers(pack);
+            } else {
+                try {
+                    sub.setDetails(objectMapper.writeValueAsString(answers));
+                } catch (Exception e) {
+                    logger.error("Failed to serialize submission details", e);
+                }
+            }
+
+            // Fold into the live analytics first so a reload from the DB can't count it twice.
+            sessionAnalytics.record(sub, pack, key);
+            // Journaled and queued here; the background writer inserts it in a batch.
             try {
-                String detailsJson = new ObjectMapper().writeValueAsString(answers);
-                sub.setDetails(detailsJson);
+                submissionPipeline.submit(sub);
+                submitted = true;
             } catch (Exception e) {
-                logger.error("Failed to serialize submission details", e);
+                sessionAnalytics.invalidate(sessionId);
+                throw e;
             }
-
-            submissionRepo.save(sub);
-            logger.info("Submission saved: Session={}, Student={}, Score={}", sessionId, studentId, score.get());
+            itemAnalysis.invalidate(sessionId);
+            scoreboardBroadcaster.publish(sessionId,
+                    ScoreboardRow.of(sub, student.getName(), student.getEnrollment()));
+            logger.info("Submission accepted: Session={}, Student={}, Score={}", sessionId, studentId, score.get());
         } catch (Exception e) {
             logger.error("Error saving submission", e);
-            // Don't fail the request if saving fails, just log it
+            // Once the pipeline has it the submission is stored; a failure
+            // after that (e.g. the broadcast) is only logged. Before that the
+            // student has to try again, so the claim goes and the request fails.
+            // A 5xx is not cached by the idempotency registry, so the retry
+            // with the same key is processed afresh.
+            if (!submitted) {
+                submissionPipeline.release(sessId, sid);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(Map.of("error", "Your submission could not be saved. Please submit again."));
+            }
         }
 
         return ResponseEntity.ok(Map.of(
                 "score", score.get(),
                 "message", "Submission successful",
-                "results", generateResults(answers)));
+                "results", generateResults(answers, key)));
     }
 
-    private List<Map<String, Object>> generateResults(List<Map<String, Object>> answers) {
+    // The response of a stored submission: its score as graded at the time and
+    // the answers it recorded, checked against the session's key.
+    private ResponseEntity<?> storedResult(com.quiz.model.Submission sub) {
+        AnswerKey sessionKey = sessionService.getAnswerKey(sub.getSessionId());
+        List<Map<String, Object>> answers;
+        AnswerKey key;
+        if (sub.getAnswers() != null && sessionKey != null) {
+            answers = PackedAnswers.unpack(sub.getAnswers(), sessionKey);
+            key = sessionKey;
+        } else {
+            answers = PackedAnswers.parseDetails(sub.getDetails());
+            key = sessionKey != null ? sessionKey : answerKeyFor(answers);
+        }
+        return ResponseEntity.ok(Map.of(
+                "score", sub.getScore(),
+                "message", "Submission successful",
+                "results", generateResults(answers, key)));
+    }
+
+    // Whether a stored submission belongs to the student making the request.
+    // The first attempt may have re-created a lost student under a new id (see
+    // the recovery in doSubmit) while the client still sends the old one; that
+    // counts as the same student when the old id is gone and the enrollment
+    // matches.
+    private boolean isSameStudent(com.quiz.model.Submission earlier, Long sid, Map<String, Object> body) {
+        if (earlier.getStudentId().equals(sid))
+            return true;
+        Object enrollment = body.get("enrollment");
+        if (enrollment == null || studentRepo.existsById(sid))
+            return false;
+        return studentRepo.findById(earlier.getStudentId())
+                .map(s -> enrollment.toString().equals(s.getEnrollment()))
+                .orElse(false);
+    }
+
+    // The key is normally built from the session's question links. Sessions
+    // created before those existed get a temporary one compiled from the
+    // answered questions in a single query instead of one lookup per answer.
+    private AnswerKey answerKeyFor(List<Map<String, Object>> answers) {
+        List<Long> ids = answers.stream()
+                .map(ans -> ((Number) ans.get("questionId")).longValue())
+                .distinct()
+                .collect(java.util.stream.Collectors.toList());
+        return AnswerKey.of(questionRepo.findAllById(ids));
+    }
+
+    private List<Map<String, Object>> generateResults(List<Map<String, Object>> answers, AnswerKey key) {
         return answers.stream().map(ans -> {
             Long qId = ((Number) ans.get("questionId")).longValue();
             String selected = (String) ans.get("selectedOption");
@@ -139,16 +288,18 @@ public class QuizController {
             res.put("questionId", qId);
             res.put("selected", selected);
 
-            questionRepo.findById(qId).ifPresent(q -> {
+            int pos = key.positionOf(qId);
+            if (pos >= 0) {
+                Question q = key.questionAt(pos);
                 res.put("correctOption", q.getCorrect());
                 res.put("explanation", q.getExplanation());
-                res.put("isCorrect", q.getCorrect() != null && q.getCorrect().equalsIgnoreCase(selected));
+                res.put("isCorrect", key.isCorrect(pos, selected));
                 res.put("text", q.getText());
                 res.put("optionA", q.getOptionA());
                 res.put("optionB", q.getOptionB());
                 res.put("optionC", q.getOptionC());
                 res.put("optionD", q.getOptionD());
-            });
+            }
             return res;
         }).collect(java.util.stream.Collectors.toList());
     }
@@ -1,16 +1,24 @@
 package com.quiz.controller;
 
-import com.quiz.model.Session;
+import com.quiz.dto.SubmissionDTOs.ScoreboardRow;
 import com.quiz.repository.SessionRepository;
+import com.quiz.service.ScoreboardBroadcaster;
+import com.quiz.service.SubmissionPipeline;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 // This controller handles the scoreboard data for a specific session.
-// It's used by faculty to see everyone's progress in real-time.
+// It's used by faculty to see everyone's progress in real-time, either by
+// loading it once or by subscribing to the live stream of new submissions.
 @RestController
 @RequestMapping("/api/session")
 public class ScoreboardController {
@@ -18,37 +26,52 @@ public class ScoreboardController {
     private final SessionRepository sessionRepo;
     private final com.quiz.repository.SubmissionRepository submissionRepo;
     private final com.quiz.repository.StudentRepository studentRepo;
+    private final ScoreboardBroadcaster broadcaster;
+    private final SubmissionPipeline submissionPipeline;
 
     public ScoreboardController(SessionRepository sessionRepo, com.quiz.repository.SubmissionRepository submissionRepo,
-            com.quiz.repository.StudentRepository studentRepo) {
+            com.quiz.repository.StudentRepository studentRepo, ScoreboardBroadcaster broadcaster,
+            SubmissionPipeline submissionPipeline) {
         this.sessionRepo = sessionRepo;
         this.submissionRepo = submissionRepo;
         this.studentRepo = studentRepo;
+        this.broadcaster = broadcaster;
+        this.submissionPipeline = submissionPipeline;
     }
 
     // This method pulls together all the scores and student names for a given
-    // session ID.
+    // session ID, joined in a single query.
+    // Submissions still waiting for the background writer are added too: they
+    // were already announced on the stream, so a viewer subscribing now would
+    // otherwise never see them. Reading those first means a row flushed in
+    // between is still found by the query.
     @GetMapping("/{id}/scoreboard")
     public ResponseEntity<?> getScoreboard(@PathVariable("id") Long id) {
-        return sessionRepo.findById(id)
-                .map(session -> {
-                    List<com.quiz.model.Submission> subs = submissionRepo.findBySessionId(id);
-                    return ResponseEntity.ok(subs.stream().map(s -> {
-                        String studentName = studentRepo.findById(s.getStudentId())
-                                .map(com.quiz.model.Student::getName).orElse("Unknown");
-                        String enrollment = studentRepo.findById(s.getStudentId())
-                                .map(com.quiz.model.Student::getEnrollment).orElse("Unknown");
+        if (!sessionRepo.existsById(id))
+            return ResponseEntity.notFound().build();
+        List<com.quiz.model.Submission> pending = submissionPipeline.pendingFor(id);
+        List<ScoreboardRow> rows = new ArrayList<>(submissionRepo.findScoreboardRows(id));
+        if (!pending.isEmpty()) {
+            Set<Long> stored = rows.stream().map(ScoreboardRow::getStudentId).collect(Collectors.toSet());
+            List<com.quiz.model.Submission> unsaved = pending.stream()
+                    .filter(s -> !stored.contains(s.getStudentId()))
+                    .toList();
+            Map<Long, com.quiz.model.Student> students = studentRepo
+                    .findAllById(unsaved.stream().map(com.quiz.model.Submission::getStudentId).toList())
+                    .stream().collect(Collectors.toMap(com.quiz.model.Student::getId, Function.identity()));
+            for (com.quiz.model.Submission s : unsaved) {
+                com.quiz.model.Student st = students.get(s.getStudentId());
+                rows.add(ScoreboardRow.of(s, st != null ? st.getName() : null, st != null ? st.getEnrollment() : null));
+            }
+        }
+        return ResponseEntity.ok(rows);
+    }
 
-                        return Map.of(
-                                "studentId", s.getStudentId(),
-                                "studentName", studentName,
-                                "enrollment", enrollment,
-                                "score", s.getScore(),
-                                "questionSet", s.getQuestionSet() != null ? s.getQuestionSet() : "-",
-                                "submittedAt", s.getSubmittedAt().toString(),
-                                "cheated", s.isCheated());
-                    }).collect(Collectors.toList()));
-                })
-                .orElse(ResponseEntity.notFound().build());
+    // Live updates: one "submission" event per new submission. Viewers
+    // subscribe first and then load the scoreboard, merging by student, so a
+    // submission made in between is not missed.
+    @GetMapping(value = "/{id}/scoreboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamScoreboard(@PathVariable("id") Long id) {
+        return broadcaster.subscribe(id);
     }
 }
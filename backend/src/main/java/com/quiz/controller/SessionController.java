@@ -2,10 +2,12 @@ package com.quiz.controller;
 
 import com.quiz.model.Question;
 import com.quiz.model.Session;
-import com.quiz.repository.QuestionRepository;
 import com.quiz.service.OTPService;
+import com.quiz.service.QuestionBankService;
+import com.quiz.service.QuestionPayloads;
 import com.quiz.service.SessionService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,19 +30,22 @@ public class SessionController {
 
     private final SessionService sessionService;
     private final OTPService otpService;
-    private final QuestionRepository questionRepo;
+    private final QuestionBankService questionBank;
     private final SessionRepository sessionRepo;
 
-    public SessionController(SessionService sessionService, OTPService otpService, QuestionRepository questionRepo,
+    public SessionController(SessionService sessionService, OTPService otpService, QuestionBankService questionBank,
             SessionRepository sessionRepo) {
         this.sessionService = sessionService;
         this.otpService = otpService;
-        this.questionRepo = questionRepo;
+        this.questionBank = questionBank;
         this.sessionRepo = sessionRepo;
     }
 
     // When a faculty member clicks "Start Quiz", this method sets everything up.
     // It saves the questions, creates the session, and generates a fresh OTP.
+    // Questions can be picked from the bank by id (questionIds) and/or sent in
+    // full; full ones go into the bank, reusing any identical stored question,
+    // and the session links to them either way.
     @PostMapping("/start")
     public ResponseEntity<?> startSession(@RequestBody StartSessionRequest body) {
         logger.info("Request to start session: Title='{}'", body.getTitle());
@@ -60,10 +65,23 @@ public class SessionController {
             q.setExplanation(m.getExplanation());
             q.setChapter(m.getChapter());
             q.setCourseOutcome(m.getCourseOutcome());
+            q.setDifficulty(m.getDifficulty());
+            q.setTags(m.getTags());
             return q;
         }).collect(Collectors.toList());
 
-        List<Question> saved = questionRepo.saveAll(questions);
+        List<Question> saved = new java.util.ArrayList<>();
+        if (body.getQuestionIds() != null && !body.getQuestionIds().isEmpty()) {
+            try {
+                saved.addAll(questionBank.findAllInOrder(body.getQuestionIds()));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+        saved.addAll(questionBank.store(questions));
+        // Answers are keyed by question id, so a question can only appear once
+        java.util.Set<Long> seen = new java.util.HashSet<>();
+        saved.removeIf(q -> !seen.add(q.getId()));
 
         // Generate secure OTP
         com.quiz.service.OTPService.OtpResult otpResult = otpService.generateSecureOtp();
@@ -105,13 +123,14 @@ public class SessionController {
     // We check the OTP and make sure the exam is actually running (not too early,
     // not too late).
     @PostMapping("/join")
-    public ResponseEntity<?> joinSession(@RequestBody JoinSessionRequest body) {
+    public ResponseEntity<?> joinSession(@RequestBody JoinSessionRequest body,
+            jakarta.servlet.http.HttpServletRequest request) {
         Long sessionId = body.getSessionId();
         if (sessionId == null)
             return ResponseEntity.badRequest().body(Map.of("error", "invalid sessionId"));
 
         String otp = body.getOtp();
-        boolean ok = sessionService.validateOtp(sessionId, otp);
+        boolean ok = sessionService.validateOtp(sessionId, otp, request.getRemoteAddr());
         if (!ok) {
             logger.warn("Failed join attempt: SessionID={}, OTP={}", sessionId, otp);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "invalid otp"));
@@ -137,7 +156,6 @@ public class SessionController {
     @GetMapping("/{id}/questions")
     public ResponseEntity<?> getQuestions(@PathVariable("id") Long id,
             @RequestParam(value = "studentId", required = false) Long studentId) {
-        List<Question> allQuestions = sessionService.getQuestionsFor(id);
         Session s = sessionService.getSession(id);
         if (s != null) {
             java.time.Instant now = java.time.Instant.now();
@@ -145,37 +163,19 @@ public class SessionController {
                 return ResponseEntity.status(403).body(Map.of("error", "Exam not started"));
             }
         }
-        if (allQuestions.isEmpty())
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "no questions or invalid session"));
 
         int sets = s != null ? s.getNumberOfSets() : 1;
-        if (sets < 1)
-            sets = 1;
-
-        // This is the logic for splitting questions into different sets.
-        // It helps prevent cheating by giving different students different questions
-        // (or a different order).
-        List<Question> assignedQuestions;
-        if (studentId != null && sets > 1) {
-            long setIndex = studentId % sets; // 0 to sets-1
-            // Filter questions: index % sets == setIndex
-            // We need efficient filtering.
-            assignedQuestions = new java.util.ArrayList<>();
-            for (int i = 0; i < allQuestions.size(); i++) {
-                if (i % sets == setIndex) {
-                    assignedQuestions.add(allQuestions.get(i));
-                }
-            }
-        } else {
-            assignedQuestions = new java.util.ArrayList<>(allQuestions);
-        }
 
-        // Shuffle Logic
-        if (studentId != null) {
-            java.util.Collections.shuffle(assignedQuestions, new java.util.Random(studentId));
-        }
+        // Questions are split into sets (index % sets) and shuffled per student to
+        // deter cheating. The JSON for each set is encoded once per session, so
+        // each request only permutes an index array and copies bytes.
+        QuestionPayloads payloads = sessionService.getQuestionPayloads(id, sets);
+        if (payloads == null || payloads.isEmpty())
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "no questions or invalid session"));
 
-        return ResponseEntity.ok(assignedQuestions);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(payloads.render(studentId));
     }
 
     @GetMapping("/{id}/status")
@@ -2,6 +2,7 @@ package com.quiz.controller;
 
 import com.quiz.model.Student;
 import com.quiz.repository.StudentRepository;
+import com.quiz.service.IdempotencyRegistry;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,14 +17,37 @@ public class StudentController {
     private final StudentRepository studentRepo;
 
     private final com.quiz.service.SessionService sessionService;
+    private final IdempotencyRegistry idempotency;
 
-    public StudentController(StudentRepository studentRepo, com.quiz.service.SessionService sessionService) {
+    public StudentController(StudentRepository studentRepo, com.quiz.service.SessionService sessionService,
+            IdempotencyRegistry idempotency) {
         this.studentRepo = studentRepo;
         this.sessionService = sessionService;
+        this.idempotency = idempotency;
     }
 
+    // With an Idempotency-Key (header or "idempotencyKey" field) a retried
+    // registration gets the same studentId back instead of a 409.
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody Map<String, String> body) {
+    public ResponseEntity<?> register(@RequestBody Map<String, String> body,
+            @RequestHeader(value = IdempotencyRegistry.HEADER, required = false) String keyHeader,
+            jakarta.servlet.http.HttpServletRequest request) {
+        String key;
+        try {
+            key = IdempotencyRegistry.keyOf(keyHeader, body.get("idempotencyKey"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        String fingerprint = body.get("sessionId") + ":" + body.get("enrollment");
+        try {
+            return idempotency.execute("register", key, fingerprint, () -> doRegister(body, key, request));
+        } catch (IdempotencyRegistry.KeyReusedException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> doRegister(Map<String, String> body, String idempotencyKey,
+            jakarta.servlet.http.HttpServletRequest request) {
         try {
             String name = body.get("name");
             String enrollment = body.get("enrollment");
@@ -36,35 +60,59 @@ public class StudentController {
 
             Long sessionId = Long.parseLong(sidStr);
 
+            // Already registered under this key (answered from the database once
+            // the in-memory copy has expired or the server restarted).
+            if (idempotencyKey != null) {
+                Student earlier = studentRepo.findByIdempotencyKey(idempotencyKey).orElse(null);
+                if (earlier != null)
+                    return replay(earlier, sessionId, enrollment);
+            }
+
             // First, we make sure the session is actually valid and the OTP matches.
-            boolean validOtp = sessionService.validateOtp(sessionId, otp);
+            boolean validOtp = sessionService.validateOtp(sessionId, otp, request.getRemoteAddr());
             if (!validOtp) {
                 return ResponseEntity.status(401).body("Invalid Session ID or OTP");
             }
 
-            // We don't want the same enrollment number joining twice in the same session!
-            if (studentRepo.existsByEnrollmentAndSessionId(enrollment, sessionId)) {
-                return ResponseEntity.status(409)
-                        .body("Student with enrollment " + enrollment + " already registered for this session.");
-            }
-
-            // 3. Register Student
+            // 3. Register Student. The same enrollment number can't join twice in
+            // the same session: the unique (sessionId, enrollment) key says so,
+            // even for two registrations racing each other.
             Student s = new Student();
             s.setName(name);
             s.setEnrollment(enrollment);
             s.setSessionId(sessionId);
-            studentRepo.save(s);
+            s.setIdempotencyKey(idempotencyKey);
+            try {
+                studentRepo.save(s);
+            } catch (org.springframework.dao.DataIntegrityViolationException e) {
+                // Lost a race with a retry of this same registration.
+                Student earlier = idempotencyKey == null ? null
+                        : studentRepo.findByIdempotencyKey(idempotencyKey).orElse(null);
+                if (earlier != null)
+                    return replay(earlier, sessionId, enrollment);
+                return ResponseEntity.status(409)
+                        .body("Student with enrollment " + enrollment + " already registered for this session.");
+            }
 
             return ResponseEntity.ok(Map.of("studentId", s.getId(), "message", "Registered successfully"));
 
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().body("Invalid Session ID format");
+        } catch (IdempotencyRegistry.KeyReusedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Registration error", e);
             return ResponseEntity.internalServerError().body("Error: " + e.getMessage());
         }
     }
 
+    private static ResponseEntity<?> replay(Student earlier, Long sessionId, String enrollment) {
+        if (!earlier.getSessionId().equals(sessionId) || !earlier.getEnrollment().equals(enrollment))
+            throw new IdempotencyRegistry.KeyReusedException();
+        return IdempotencyRegistry.replayed(
+                ResponseEntity.ok(Map.of("studentId", earlier.getId(), "message", "Registered successfully")));
+    }
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody Map<String, String> body) {
         // Mock login for demo purposes since Student model doesn't have auth yet
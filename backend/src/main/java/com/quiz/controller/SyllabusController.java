@@ -1,10 +1,22 @@
 package com.quiz.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quiz.model.Question;
+import com.quiz.service.AIRequestExecutor;
 import com.quiz.service.AIService;
+import com.quiz.service.GenerationCache;
+import com.quiz.service.GenerationJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -13,10 +25,22 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/syllabus")
 public class SyllabusController {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SyllabusController.class);
     private final AIService aiService;
+    private final GenerationCache generationCache;
+    private final AIRequestExecutor aiRequestExecutor;
+    private final GenerationJobService jobService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public SyllabusController(AIService aiService) {
+    @org.springframework.beans.factory.annotation.Value("${quiz.ai.stream-timeout-ms:600000}")
+    private long streamTimeoutMs;
+
+    public SyllabusController(AIService aiService, GenerationCache generationCache,
+            AIRequestExecutor aiRequestExecutor, GenerationJobService jobService) {
         this.aiService = aiService;
+        this.generationCache = generationCache;
+        this.aiRequestExecutor = aiRequestExecutor;
+        this.jobService = jobService;
     }
 
     // This is the main endpoint for generating questions from syllabus text.
@@ -43,6 +67,128 @@ public class SyllabusController {
         return ResponseEntity.ok(q);
     }
 
+    // Streaming version of /generate: answers with Server-Sent Events instead of
+    // one JSON array. Every question is sent as a "question" event the moment the
+    // AI finishes writing it, followed by a "progress" event; "done" closes it.
+    // A stream takes one of the background job slots while it runs; when they
+    // are all in use the answer is a 429 carrying just an "error" event.
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> generateStream(@RequestBody Map<String, Object> body) {
+        String text = (String) body.get("text");
+        String fileData = (String) body.get("fileData");
+        String mimeType = (String) body.get("mimeType");
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> weights = (List<Map<String, Object>>) body.get("weights");
+
+        int parsed = 60;
+        try {
+            parsed = Integer.parseInt(body.getOrDefault("count", "60").toString());
+        } catch (NumberFormatException e) {
+        }
+        final int count = parsed;
+
+        if ((text == null || text.isBlank()) && (fileData == null || fileData.isBlank()))
+            return ResponseEntity.badRequest().build();
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        java.util.concurrent.CompletableFuture<List<Question>> generation;
+        java.util.concurrent.atomic.AtomicInteger generated = new java.util.concurrent.atomic.AtomicInteger();
+        java.util.concurrent.atomic.AtomicBoolean open = new java.util.concurrent.atomic.AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(e -> open.set(false));
+
+        // If the client goes away, generation still finishes (and lands in the
+        // result cache), we just stop sending.
+        try {
+            generation = jobService.stream(() -> aiService.generateQuestions(text, fileData, mimeType, count, weights,
+                    q -> {
+                        int n = generated.incrementAndGet();
+                        send(emitter, open, SseEmitter.event().name("question").data(q));
+                        send(emitter, open,
+                                SseEmitter.event().name("progress").data(Map.of("generated", n, "requested", count)));
+                    }));
+        } catch (GenerationJobService.TooManyJobsException e) {
+            send(emitter, open, SseEmitter.event().name("error").data(Map.of("error", e.getMessage())));
+            emitter.complete();
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(emitter);
+        }
+        generation.whenComplete((all, err) -> {
+            if (err != null) {
+                logger.error("Streaming generation failed", err);
+                send(emitter, open, SseEmitter.event().name("error").data(Map.of("error", "generation failed")));
+            } else {
+                send(emitter, open, SseEmitter.event().name("done").data(Map.of("count", all.size())));
+            }
+            if (open.get())
+                emitter.complete();
+        });
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Called from several batch threads; SseEmitter serialises the writes.
+    private void send(SseEmitter emitter, java.util.concurrent.atomic.AtomicBoolean open,
+            SseEmitter.SseEventBuilder event) {
+        if (!open.get())
+            return;
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Generation stream client went away: {}", e.getMessage());
+            open.set(false);
+        }
+    }
+
+    // Same as /generate, but the file comes as a multipart upload instead of a
+    // Base64 string in JSON. It is spooled to a temp file and streamed on to the
+    // AI provider, so a large PDF never sits in memory.
+    @PostMapping(value = "/generate/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> generateFromUpload(@RequestPart("file") MultipartFile file,
+            @RequestParam(value = "text", required = false) String text,
+            @RequestParam(value = "count", defaultValue = "60") String countStr,
+            @RequestParam(value = "mimeType", required = false) String mimeType,
+            @RequestParam(value = "weights", required = false) String weightsJson) {
+        if (file.isEmpty())
+            return ResponseEntity.badRequest().body(Map.of("error", "empty file"));
+
+        int count = 60;
+        try {
+            count = Integer.parseInt(countStr);
+        } catch (NumberFormatException e) {
+        }
+
+        List<Map<String, Object>> weights = null;
+        if (weightsJson != null && !weightsJson.isBlank()) {
+            try {
+                weights = objectMapper.readValue(weightsJson, new TypeReference<>() {
+                });
+            } catch (Exception e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "invalid weights"));
+            }
+        }
+
+        String type = mimeType != null && !mimeType.isBlank() ? mimeType : file.getContentType();
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("syllabus-", ".upload");
+            file.transferTo(spool);
+            List<Question> q = aiService.generateQuestionsFromFile(text, spool, type, count, weights);
+            return ResponseEntity.ok(q);
+        } catch (IOException e) {
+            logger.error("Failed to spool syllabus upload", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "upload failed"));
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException e) {
+                    logger.warn("Could not delete spooled upload {}", spool);
+                }
+            }
+        }
+    }
+
     @PostMapping("/analyze")
     public ResponseEntity<?> analyzeSyllabus(@RequestBody Map<String, String> body) {
         String text = body.get("text");
@@ -56,4 +202,16 @@ public class SyllabusController {
         Map<String, Object> analysis = aiService.analyzeSyllabus(text);
         return ResponseEntity.ok(analysis);
     }
+
+    // Hit/miss counters for the AI result cache
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        return generationCache.stats();
+    }
+
+    // Provider call/batch latency histograms, retries and 429 counts
+    @GetMapping("/ai/stats")
+    public Map<String, Object> aiStats() {
+        return aiRequestExecutor.stats();
+    }
 }
@@ -53,6 +53,17 @@ public class SessionDTOs {
         public void setNumberOfSets(Integer numberOfSets) {
             this.numberOfSets = numberOfSets;
         }
+
+        // Question bank ids to ask, before any questions given in full
+        private List<Long> questionIds;
+
+        public List<Long> getQuestionIds() {
+            return questionIds;
+        }
+
+        public void setQuestionIds(List<Long> questionIds) {
+            this.questionIds = questionIds;
+        }
     }
 
     public static class QuestionRequest {
@@ -138,6 +149,25 @@ public class SessionDTOs {
         public void setCourseOutcome(String courseOutcome) {
             this.courseOutcome = courseOutcome;
         }
+
+        private String difficulty;
+        private List<String> tags;
+
+        public String getDifficulty() {
+            return difficulty;
+        }
+
+        public void setDifficulty(String difficulty) {
+            this.difficulty = difficulty;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
     }
 
     public static class JoinSessionRequest {
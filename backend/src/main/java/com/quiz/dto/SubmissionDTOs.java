@@ -0,0 +1,101 @@
+package com.quiz.dto;
+
+import com.quiz.model.Submission;
+
+import java.time.Instant;
+
+public class SubmissionDTOs {
+    // Read-only rows built directly by projection queries in SubmissionRepository
+
+    /** One line of a session scoreboard (also the payload of a live "submission" event). */
+    public static class ScoreboardRow {
+        private final Long studentId;
+        private final String studentName;
+        private final String enrollment;
+        private final int score;
+        private final String questionSet;
+        private final String submittedAt;
+        private final boolean cheated;
+
+        public ScoreboardRow(Long studentId, String studentName, String enrollment, int score, String questionSet,
+                Instant submittedAt, boolean cheated) {
+            this.studentId = studentId;
+            this.studentName = studentName != null ? studentName : "Unknown";
+            this.enrollment = enrollment != null ? enrollment : "Unknown";
+            this.score = score;
+            this.questionSet = questionSet != null ? questionSet : "-";
+            this.submittedAt = submittedAt != null ? submittedAt.toString() : "N/A";
+            this.cheated = cheated;
+        }
+
+        public static ScoreboardRow of(Submission s, String studentName, String enrollment) {
+            return new ScoreboardRow(s.getStudentId(), studentName, enrollment, s.getScore(), s.getQuestionSet(),
+                    s.getSubmittedAt(), s.isCheated());
+        }
+
+        public Long getStudentId() {
+            return studentId;
+        }
+
+        public String getStudentName() {
+            return studentName;
+        }
+
+        public String getEnrollment() {
+            return enrollment;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getQuestionSet() {
+            return questionSet;
+        }
+
+        public String getSubmittedAt() {
+            return submittedAt;
+        }
+
+        public boolean isCheated() {
+            return cheated;
+        }
+    }
+
+    /** One line of the admin submission archive. */
+    public static class AdminSubmissionRow {
+        private final Long id;
+        private final Long sessionId;
+        private final String studentName;
+        private final int score;
+        private final String submittedAt;
+
+        public AdminSubmissionRow(Long id, Long sessionId, String studentName, int score, Instant submittedAt) {
+            this.id = id;
+            this.sessionId = sessionId;
+            this.studentName = studentName != null ? studentName : "Unknown";
+            this.score = score;
+            this.submittedAt = submittedAt != null ? submittedAt.toString() : "N/A";
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getSessionId() {
+            return sessionId;
+        }
+
+        public String getStudentName() {
+            return studentName;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getSubmittedAt() {
+            return submittedAt;
+        }
+    }
+}
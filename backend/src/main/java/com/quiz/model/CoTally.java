@@ -0,0 +1,37 @@
+package com.quiz.model;
+
+import jakarta.persistence.Embeddable;
+
+/**
+ * Correct/total answer counts for one course outcome, as stored in an
+ * analytics snapshot.
+ */
+@Embeddable
+public class CoTally {
+    private int correct;
+    private int total;
+
+    public CoTally() {
+    }
+
+    public CoTally(int correct, int total) {
+        this.correct = correct;
+        this.total = total;
+    }
+
+    public int getCorrect() {
+        return correct;
+    }
+
+    public void setCorrect(int correct) {
+        this.correct = correct;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+}
@@ -24,7 +24,7 @@ public class Otp {
 
     private int attempts = 0;
 
-    private static final int MAX_ATTEMPTS = 5;
+    public static final int MAX_ATTEMPTS = 5;
 
     @OneToOne(mappedBy = "otpDetails")
     @com.fasterxml.jackson.annotation.JsonIgnore
@@ -2,17 +2,29 @@ package com.quiz.model;
 
 import jakarta.persistence.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Represents a multiple-choice question.
  * Contains the question text, four options, the correct answer key, and an
  * explanation.
+ * <p>
+ * Questions with a {@code contentHash} belong to the question bank: stored once
+ * per distinct content and linked to any number of sessions by id.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_question_chapter", columnList = "chapter"),
+        @Index(name = "idx_question_course_outcome", columnList = "courseOutcome")
+})
 public class Question {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    @Lob
+    // Unbounded text: a CLOB on H2, "text" on PostgreSQL (where an @Lob String
+    // would become a large-object oid).
+    @Column(columnDefinition = "text")
     private String text;
     @Column(length = 2048)
     private String optionA;
@@ -80,7 +92,7 @@ public class Question {
         this.correct = correct;
     }
 
-    @Lob
+    @Column(columnDefinition = "text")
     private String explanation;
 
     private String chapter;
@@ -111,6 +123,76 @@ public class Question {
         this.courseOutcome = courseOutcome;
     }
 
+    /** SHA-256 of the normalized content (QuestionBankService.contentHash); null for pre-bank rows. */
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    @Column(length = 64, unique = true)
+    private String contentHash;
+
+    private String difficulty; // e.g., Easy, Medium, Hard
+
+    @Convert(converter = TagsConverter.class)
+    @Column(length = 1024)
+    private List<String> tags;
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    /**
+     * Stores tags as ",tag1,tag2," (lower case, trimmed) so a single tag can be
+     * matched with {@code like '%,tag,%'}.
+     */
+    @Converter
+    public static class TagsConverter implements AttributeConverter<List<String>, String> {
+        @Override
+        public String convertToDatabaseColumn(List<String> tags) {
+            if (tags == null || tags.isEmpty())
+                return null;
+            StringBuilder sb = new StringBuilder(",");
+            for (String t : tags) {
+                String tag = normalize(t);
+                if (!tag.isEmpty())
+                    sb.append(tag).append(',');
+            }
+            return sb.length() == 1 ? null : sb.toString();
+        }
+
+        @Override
+        public List<String> convertToEntityAttribute(String column) {
+            if (column == null || column.isBlank())
+                return new ArrayList<>();
+            List<String> tags = new ArrayList<>();
+            for (String t : column.split(","))
+                if (!t.isBlank())
+                    tags.add(t);
+            return tags;
+        }
+
+        public static String normalize(String tag) {
+            return tag == null ? "" : tag.replace(",", " ").trim().toLowerCase(java.util.Locale.ROOT);
+        }
+    }
+
     @Override
     public String toString() {
         return text + " [Chapter: " + chapter + "]\nA) " + optionA + " B) " + optionB + " C) " + optionC + " D) "
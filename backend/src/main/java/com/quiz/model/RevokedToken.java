@@ -0,0 +1,43 @@
+package com.quiz.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A logged-out JWT that must be rejected until it would have expired anyway.
+ * Stored by signature (the token's own HMAC), never as the full token.
+ */
+@Entity
+@Table(name = "revoked_token", indexes = @Index(name = "idx_revoked_token_expires", columnList = "expiresAt"))
+public class RevokedToken {
+    @Id
+    @Column(length = 128)
+    private String signature;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public RevokedToken() {
+    }
+
+    public RevokedToken(String signature, Instant expiresAt) {
+        this.signature = signature;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public void setSignature(String signature) {
+        this.signature = signature;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,86 @@
+package com.quiz.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persisted copy of a session's running analytics aggregate, so it can be
+ * restored after a restart without re-reading every submission.
+ */
+@Entity
+@Table(name = "session_analytics")
+public class SessionAnalyticsSnapshot {
+    /** One snapshot per session, keyed by the session id. */
+    @Id
+    private Long sessionId;
+
+    private long submissionCount;
+    private long scoreSum;
+    private int highestScore;
+    private int lowestScore;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "session_analytics_co", joinColumns = @JoinColumn(name = "session_id"))
+    @MapKeyColumn(name = "co")
+    private Map<String, CoTally> coTallies = new HashMap<>();
+
+    private Instant updatedAt = Instant.now();
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(Long sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public long getSubmissionCount() {
+        return submissionCount;
+    }
+
+    public void setSubmissionCount(long submissionCount) {
+        this.submissionCount = submissionCount;
+    }
+
+    public long getScoreSum() {
+        return scoreSum;
+    }
+
+    public void setScoreSum(long scoreSum) {
+        this.scoreSum = scoreSum;
+    }
+
+    public int getHighestScore() {
+        return highestScore;
+    }
+
+    public void setHighestScore(int highestScore) {
+        this.highestScore = highestScore;
+    }
+
+    public int getLowestScore() {
+        return lowestScore;
+    }
+
+    public void setLowestScore(int lowestScore) {
+        this.lowestScore = lowestScore;
+    }
+
+    public Map<String, CoTally> getCoTallies() {
+        return coTallies;
+    }
+
+    public void setCoTallies(Map<String, CoTally> coTallies) {
+        this.coTallies = coTallies;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
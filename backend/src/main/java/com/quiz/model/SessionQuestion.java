@@ -0,0 +1,59 @@
+package com.quiz.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Links a question to the session it is asked in, keeping its position.
+ * Lets the in-memory question cache be rebuilt from the database after a
+ * restart or eviction.
+ */
+@Entity
+@Table(name = "session_question", indexes = @Index(name = "idx_session_question_session", columnList = "sessionId, position"))
+public class SessionQuestion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long sessionId;
+    private Long questionId;
+
+    /** Zero-based order of the question within the session. */
+    private int position;
+
+    public SessionQuestion() {
+    }
+
+    public SessionQuestion(Long sessionId, Long questionId, int position) {
+        this.sessionId = sessionId;
+        this.questionId = questionId;
+        this.position = position;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(Long sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(Long questionId) {
+        this.questionId = questionId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+}
@@ -4,9 +4,12 @@ import jakarta.persistence.*;
 
 /**
  * Represents a student registered for a specific session.
- * Stores enrollment details and links to the session.
+ * Stores enrollment details and links to the session. An enrollment number
+ * can register once per session (unique sessionId, enrollment).
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_student_session_enrollment", columnNames = { "sessionId",
+        "enrollment" }))
 public class Student {
 
     @Id
@@ -19,6 +22,11 @@ public class Student {
     /** The specific session ID this student is registered for. */
     private Long sessionId;
 
+    /** Client-supplied key of the register request; a retry with it gets this student back. */
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    @Column(length = 64, unique = true)
+    private String idempotencyKey;
+
     // GETTERS
     public Long getId() {
         return id;
@@ -36,6 +44,10 @@ public class Student {
         return sessionId;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
     // SETTERS
     public void setName(String name) {
         this.name = name;
@@ -48,4 +60,8 @@ public class Student {
     public void setSessionId(Long sessionId) {
         this.sessionId = sessionId;
     }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
@@ -5,11 +5,18 @@ import java.time.Instant;
 
 /**
  * Records the final score and details of a student's quiz attempt.
+ * One per student and session; the unique (sessionId, studentId) key also
+ * serves every per-session lookup.
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_submission_session_student", columnNames = { "sessionId",
+        "studentId" }))
 public class Submission {
+    // Sequence ids (pre-allocated in blocks) let Hibernate batch the inserts
+    // made by the write-behind submission pipeline; IDENTITY disables batching.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "submission_seq")
+    @SequenceGenerator(name = "submission_seq", sequenceName = "submission_seq", allocationSize = 50)
     private Long id;
     private Long sessionId;
     private Long studentId;
@@ -78,8 +85,24 @@ public class Submission {
         this.cheated = cheated;
     }
 
-    @Lob
-    private String details; // JSON of answers
+    /**
+     * Selected option per session question position, one byte each (see
+     * PackedAnswers). Null on legacy rows that only have {@link #details}.
+     */
+    @Column(length = 8192)
+    private byte[] answers;
+
+    public byte[] getAnswers() {
+        return answers;
+    }
+
+    public void setAnswers(byte[] answers) {
+        this.answers = answers;
+    }
+
+    /** Legacy JSON of answers; only written when the session has no question links. */
+    @Column(columnDefinition = "text")
+    private String details;
 
     public String getDetails() {
         return details;
@@ -88,4 +111,17 @@ public class Submission {
     public void setDetails(String details) {
         this.details = details;
     }
+
+    /** Client-supplied key of the submit request; a retry with it replays this submission. */
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    @Column(length = 64, unique = true)
+    private String idempotencyKey;
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
 }
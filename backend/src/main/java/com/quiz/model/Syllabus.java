@@ -11,7 +11,7 @@ public class Syllabus {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    @Lob
+    @Column(columnDefinition = "text")
     private String text;
 
     public Long getId() {
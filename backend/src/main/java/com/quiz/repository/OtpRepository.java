@@ -2,8 +2,18 @@ package com.quiz.repository;
 
 import com.quiz.model.Otp;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface OtpRepository extends JpaRepository<Otp, Long> {
+
+    /** Raises the stored attempt count; never lowers it. */
+    @Modifying
+    @Transactional
+    @Query("update Otp o set o.attempts = :attempts where o.id = :id and o.attempts < :attempts")
+    int raiseAttempts(@Param("id") Long id, @Param("attempts") int attempts);
 }
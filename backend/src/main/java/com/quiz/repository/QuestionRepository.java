@@ -1,8 +1,51 @@
 package com.quiz.repository;
 
 import com.quiz.model.Question;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 @org.springframework.stereotype.Repository
 public interface QuestionRepository extends JpaRepository<Question, Long> {
+
+    /** Loads a session's questions in their original order with a single query. */
+    @Query("select q from SessionQuestion sq join Question q on q.id = sq.questionId "
+            + "where sq.sessionId = :sessionId order by sq.position")
+    List<Question> findBySessionIdInOrder(@Param("sessionId") Long sessionId);
+
+    List<Question> findByContentHashIn(Collection<String> contentHashes);
+
+    /** Every bank question; used once at startup to build the search index. */
+    List<Question> findByContentHashIsNotNull();
+
+    /**
+     * Bank questions matching all of the given filters; a null filter matches
+     * everything. Filters must already be normalized the way the bank stores
+     * them, so the comparisons stay on the plain (indexed) columns.
+     */
+    @Query("select q from Question q where q.contentHash is not null "
+            + "and (:chapter is null or q.chapter = :chapter) "
+            + "and (:co is null or q.courseOutcome = :co) "
+            + "and (:difficulty is null or q.difficulty = :difficulty) "
+            + "and (:tag is null or q.tags like concat('%,', cast(:tag as String), ',%'))")
+    Page<Question> searchBank(@Param("chapter") String chapter, @Param("co") String courseOutcome,
+            @Param("difficulty") String difficulty, @Param("tag") String tag, Pageable pageable);
+
+    /** As {@link #searchBank} restricted to the given ids (full-text matches). */
+    @Query("select q from Question q where q.contentHash is not null and q.id in :ids "
+            + "and (:chapter is null or q.chapter = :chapter) "
+            + "and (:co is null or q.courseOutcome = :co) "
+            + "and (:difficulty is null or q.difficulty = :difficulty) "
+            + "and (:tag is null or q.tags like concat('%,', cast(:tag as String), ',%'))")
+    List<Question> searchBankIn(@Param("ids") Collection<Long> ids, @Param("chapter") String chapter,
+            @Param("co") String courseOutcome, @Param("difficulty") String difficulty, @Param("tag") String tag);
+
+    @Query("select q.chapter, q.courseOutcome, count(q) from Question q where q.contentHash is not null "
+            + "group by q.chapter, q.courseOutcome order by q.chapter, q.courseOutcome")
+    List<Object[]> countBankByChapterAndCo();
 }
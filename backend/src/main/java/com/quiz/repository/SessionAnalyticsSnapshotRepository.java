@@ -0,0 +1,7 @@
+package com.quiz.repository;
+
+import com.quiz.model.SessionAnalyticsSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SessionAnalyticsSnapshotRepository extends JpaRepository<SessionAnalyticsSnapshot, Long> {
+}
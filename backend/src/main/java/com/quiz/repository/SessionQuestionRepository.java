@@ -0,0 +1,18 @@
+package com.quiz.repository;
+
+import com.quiz.model.SessionQuestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface SessionQuestionRepository extends JpaRepository<SessionQuestion, Long> {
+
+    @Query("select distinct sq.sessionId from SessionQuestion sq order by sq.sessionId")
+    List<Long> findSessionIds();
+
+    @Query("select distinct sq.sessionId from SessionQuestion sq where sq.questionId = :questionId "
+            + "order by sq.sessionId")
+    List<Long> findSessionIdsByQuestionId(@Param("questionId") Long questionId);
+}
@@ -5,4 +5,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
     boolean existsByEnrollmentAndSessionId(String enrollment, Long sessionId);
+
+    java.util.Optional<Student> findByEnrollmentAndSessionId(String enrollment, Long sessionId);
+
+    java.util.Optional<Student> findByIdempotencyKey(String idempotencyKey);
 }
@@ -1,13 +1,47 @@
 package com.quiz.repository;
 
+import com.quiz.dto.SubmissionDTOs.AdminSubmissionRow;
+import com.quiz.dto.SubmissionDTOs.ScoreboardRow;
 import com.quiz.model.Submission;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
 
 public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     List<Submission> findBySessionId(Long sessionId);
 
+    long countBySessionId(Long sessionId);
+
     boolean existsByStudentIdAndSessionId(Long studentId, Long sessionId);
 
     java.util.Optional<Submission> findByStudentIdAndSessionId(Long studentId, Long sessionId);
+
+    java.util.Optional<Submission> findByIdempotencyKey(String idempotencyKey);
+
+    /** Packed answers of a session's honest submissions, for item analysis. */
+    @Query("select s.answers from Submission s where s.sessionId = :sessionId and s.cheated = false "
+            + "and s.answers is not null")
+    List<byte[]> findPackedAnswers(@Param("sessionId") Long sessionId);
+
+    /** Sessions that still have submissions stored only as legacy {@code details} JSON. */
+    @Query("select distinct s.sessionId from Submission s where s.answers is null and s.details is not null")
+    List<Long> findSessionIdsWithLegacyDetails();
+
+    /** Scoreboard rows with student name/enrollment joined in, as one SQL statement. */
+    @Query("select new com.quiz.dto.SubmissionDTOs$ScoreboardRow(s.studentId, st.name, st.enrollment, s.score, "
+            + "s.questionSet, s.submittedAt, s.cheated) "
+            + "from Submission s left join Student st on st.id = s.studentId where s.sessionId = :sessionId")
+    List<ScoreboardRow> findScoreboardRows(@Param("sessionId") Long sessionId);
+
+    /**
+     * Keyset page of the submission archive: rows with id greater than
+     * {@code afterId}, in id order. Pass {@code PageRequest.of(0, limit)}.
+     */
+    @Query("select new com.quiz.dto.SubmissionDTOs$AdminSubmissionRow(s.id, s.sessionId, st.name, s.score, "
+            + "s.submittedAt) "
+            + "from Submission s left join Student st on st.id = s.studentId where s.id > :afterId order by s.id")
+    List<AdminSubmissionRow> findArchivePage(@Param("afterId") long afterId, Pageable page);
 }
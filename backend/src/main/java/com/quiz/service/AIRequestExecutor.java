@@ -0,0 +1,317 @@
+package com.quiz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Runs AI provider calls: batches go to a dedicated pool capped at
+ * {@code quiz.ai.max-concurrency} instead of the common ForkJoinPool, every
+ * HTTP call first takes a permit from its provider's token bucket, and 429s,
+ * 5xx responses and I/O errors are retried with jittered exponential backoff
+ * (honouring {@code Retry-After}). Call and batch latencies are kept as
+ * histograms for {@link #stats()}. With {@code spring.threads.virtual.enabled}
+ * the batches, generations and HTTP client run on virtual threads; the batch
+ * pool keeps its fixed size, which is what caps concurrency per provider.
+ */
+@Component
+public class AIRequestExecutor {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AIRequestExecutor.class);
+
+    public static final String GEMINI = "gemini";
+    public static final String GLM = "glm";
+
+    private HttpClient httpClient;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${quiz.ai.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${quiz.ai.gemini.requests-per-minute:15}")
+    private int geminiRpm;
+
+    @Value("${quiz.ai.glm.requests-per-minute:60}")
+    private int glmRpm;
+
+    @Value("${quiz.ai.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${quiz.ai.retry.base-delay-ms:1000}")
+    private long baseDelayMs;
+
+    @Value("${quiz.ai.retry.max-delay-ms:30000}")
+    private long maxDelayMs;
+
+    private ExecutorService pool;
+    private ExecutorService coordinators;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (virtualThreads) {
+            pool = Executors.newFixedThreadPool(Math.max(1, maxConcurrency),
+                    Thread.ofVirtual().name("ai-batch-", 1).factory());
+            coordinators = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-generation-", 1).factory());
+            httpClient = HttpClient.newBuilder()
+                    .executor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ai-http-", 1).factory()))
+                    .build();
+            logger.info("AI requests run on virtual threads");
+        } else {
+            AtomicInteger n = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(Math.max(1, maxConcurrency), r -> {
+                Thread t = new Thread(r, "ai-batch-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            AtomicInteger c = new AtomicInteger();
+            coordinators = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "ai-generation-" + c.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            httpClient = HttpClient.newHttpClient();
+        }
+        buckets.put(GEMINI, new TokenBucket(geminiRpm));
+        buckets.put(GLM, new TokenBucket(glmRpm));
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+        coordinators.shutdownNow();
+    }
+
+    /**
+     * Runs a whole generation (which waits on its batches) off the caller's
+     * thread. Kept apart from the batch pool so a waiting generation can never
+     * hold a slot its own batches need.
+     */
+    public <T> CompletableFuture<T> coordinate(Supplier<T> generation) {
+        return CompletableFuture.supplyAsync(generation, coordinators);
+    }
+
+    /** Runs one generation batch on the AI pool and records its latency. */
+    public <T> CompletableFuture<T> submit(String provider, Supplier<T> batch) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return batch.get();
+            } finally {
+                histogram(provider + ".batch").record(System.nanoTime() - start);
+            }
+        }, pool);
+    }
+
+    /**
+     * Sends a request within the provider's rate limit, retrying transient
+     * failures. Returns the last response if retries run out on a 429/5xx.
+     */
+    public HttpResponse<String> send(String provider, HttpRequest request)
+            throws IOException, InterruptedException {
+        return send(provider, request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * As {@link #send(String, HttpRequest)} with any body handler. Bodies of
+     * retried responses are closed if they are streams.
+     */
+    public <T> HttpResponse<T> send(String provider, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        TokenBucket bucket = buckets.computeIfAbsent(provider, p -> new TokenBucket(60));
+        Histogram calls = histogram(provider + ".call");
+        for (int attempt = 1;; attempt++) {
+            bucket.acquire();
+            long start = System.nanoTime();
+            HttpResponse<T> response;
+            try {
+                response = httpClient.send(request, handler);
+            } catch (IOException e) {
+                calls.record(System.nanoTime() - start);
+                if (attempt >= maxAttempts) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+                retries.incrementAndGet();
+                long delay = backoff(attempt);
+                logger.warn("{} request failed ({}), retry {}/{} in {} ms", provider, e.getMessage(), attempt,
+                        maxAttempts - 1, delay);
+                Thread.sleep(delay);
+                continue;
+            }
+            calls.record(System.nanoTime() - start);
+
+            int status = response.statusCode();
+            boolean transientError = status == 429 || status >= 500;
+            if (!transientError)
+                return response;
+            if (status == 429) {
+                rateLimited.incrementAndGet();
+                // The provider says we are over quota: stop everyone else from
+                // spending permits we do not have.
+                bucket.drain();
+            }
+            if (attempt >= maxAttempts) {
+                failures.incrementAndGet();
+                logger.error("{} request gave up after {} attempts: Status={}", provider, attempt, status);
+                return response;
+            }
+            if (response.body() instanceof java.io.Closeable body)
+                body.close();
+            retries.incrementAndGet();
+            long delay = Math.max(backoff(attempt), retryAfterMs(response));
+            logger.warn("{} returned {}, retry {}/{} in {} ms", provider, status, attempt, maxAttempts - 1, delay);
+            Thread.sleep(delay);
+        }
+    }
+
+    /** Adds a latency sample to the named histogram, e.g. time to first question. */
+    public void record(String name, long nanos) {
+        histogram(name).record(nanos);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("maxConcurrency", maxConcurrency);
+        m.put("retries", retries.get());
+        m.put("rateLimited", rateLimited.get());
+        m.put("failures", failures.get());
+        Map<String, Object> latency = new LinkedHashMap<>();
+        new java.util.TreeMap<>(histograms).forEach((name, h) -> latency.put(name, h.toMap()));
+        m.put("latency", latency);
+        return m;
+    }
+
+    // Equal jitter: uniform in [cap/2, cap], cap = min(max, base * 2^(attempt-1)).
+    private long backoff(int attempt) {
+        long cap = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    private long retryAfterMs(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After").map(v -> {
+            try {
+                return Math.min(maxDelayMs * 2, Long.parseLong(v.trim()) * 1000);
+            } catch (NumberFormatException e) {
+                return 0L;
+            }
+        }).orElse(0L);
+    }
+
+    private Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Token bucket refilled at {@code rpm} per minute that holds up to ten
+     * seconds' worth of permits. Callers reserve a permit and sleep until it
+     * is due, so waiting threads are served in arrival order.
+     */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double perNano;
+        private double tokens;
+        private long last = System.nanoTime();
+
+        TokenBucket(int rpm) {
+            int rate = Math.max(1, rpm);
+            this.perNano = rate / 60e9;
+            this.capacity = Math.max(1, rate / 6.0);
+            this.tokens = capacity;
+        }
+
+        void acquire() throws InterruptedException {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                tokens -= 1;
+                waitNanos = tokens >= 0 ? 0 : (long) (-tokens / perNano);
+            }
+            if (waitNanos > 0)
+                Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+
+        synchronized void drain() {
+            refill();
+            tokens = Math.min(tokens, 0);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - last) * perNano);
+            last = now;
+        }
+    }
+
+    /** Latency histogram with power-of-two millisecond buckets (<=125 ms ... <=64 s, more). */
+    private static final class Histogram {
+        private static final long[] BOUNDS_MS = { 125, 250, 500, 1000, 2000, 4000, 8000, 16000, 32000, 64000 };
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+
+        void record(long nanos) {
+            long ms = nanos / 1_000_000;
+            int i = 0;
+            while (i < BOUNDS_MS.length && ms > BOUNDS_MS[i])
+                i++;
+            counts.incrementAndGet(i);
+            count.incrementAndGet();
+            sumMs.addAndGet(ms);
+            maxMs.accumulateAndGet(ms, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.get();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            m.put("meanMs", n == 0 ? 0 : sumMs.get() / n);
+            m.put("maxMs", maxMs.get());
+            m.put("p50Ms", percentile(n, 0.50));
+            m.put("p95Ms", percentile(n, 0.95));
+            Map<String, Long> buckets = new LinkedHashMap<>();
+            for (int i = 0; i < BOUNDS_MS.length; i++)
+                buckets.put("le" + BOUNDS_MS[i], counts.get(i));
+            buckets.put("more", counts.get(BOUNDS_MS.length));
+            m.put("buckets", buckets);
+            return m;
+        }
+
+        // Upper bound of the bucket holding the quantile (max for the overflow bucket).
+        private long percentile(long n, double q) {
+            if (n == 0)
+                return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS_MS.length; i++) {
+                seen += counts.get(i);
+                if (seen >= rank)
+                    return Math.min(BOUNDS_MS[i], maxMs.get());
+            }
+            return maxMs.get();
+        }
+    }
+}
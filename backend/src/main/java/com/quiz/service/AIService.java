@@ -76,7 +76,23 @@ public class AIService {
         @org.springframework.beans.factory.annotation.Value("${glm.model:#{null}}")
         private String glmModel;
 
-        private final java.net.http.HttpClient httpClient = java.net.http.HttpClient.newHttpClient();
+        // Part of every cache key: bump when constructPrompt or the analysis prompt
+        // changes so stale results are not served.
+        private static final String PROMPT_VERSION = "2";
+
+        private static final com.fasterxml.jackson.core.type.TypeReference<List<Question>> QUESTION_LIST = new com.fasterxml.jackson.core.type.TypeReference<>() {
+        };
+        private static final com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>> ANALYSIS = new com.fasterxml.jackson.core.type.TypeReference<>() {
+        };
+
+        private final GenerationCache cache;
+        private final AIRequestExecutor executor;
+
+        public AIService(GenerationCache cache, AIRequestExecutor executor) {
+                this.cache = cache;
+                this.executor = executor;
+        }
+
         private final com.fasterxml.jackson.databind.ObjectMapper mapper = com.fasterxml.jackson.databind.json.JsonMapper
                         .builder()
                         .enable(com.fasterxml.jackson.core.json.JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
@@ -90,14 +106,30 @@ public class AIService {
         // Batch size for parallel requests. Increased to 10 for higher throughput.
         private static final int BATCH_SIZE = 10;
 
+        // Chunk size for large files, in estimated tokens (~15k chars), and how much
+        // of a chunk cut for size is repeated at the start of the next one.
+        @org.springframework.beans.factory.annotation.Value("${quiz.ai.chunk-max-tokens:3750}")
+        private int chunkMaxTokens;
+
+        @org.springframework.beans.factory.annotation.Value("${quiz.ai.chunk-overlap-tokens:150}")
+        private int chunkOverlapTokens;
+
+        // Use streamGenerateContent (SSE) so questions arrive as they are written.
+        @org.springframework.beans.factory.annotation.Value("${quiz.ai.gemini.streaming:true}")
+        private boolean geminiStreaming;
+
+        // Questions at least this similar (estimated Jaccard over word bigrams of
+        // text + options) count as duplicates; refill rounds for the gaps they leave.
+        @org.springframework.beans.factory.annotation.Value("${quiz.ai.dedup.threshold:0.6}")
+        private double dedupThreshold;
+
+        @org.springframework.beans.factory.annotation.Value("${quiz.ai.dedup.top-up-rounds:2}")
+        private int topUpRounds;
+
         // This is the main entry point to generate questions.
         // If we have an AI key, we'll use Gemini in parallel batches to speed things
         // up.
         // If not, we fall back to our mock questions so the app doesn't break.
-        // Chunk size for large files (approx 15k chars to stay safely within token
-        // limits detailed context)
-        private static final int CHUNK_SIZE = 15000;
-
         public List<Question> generateQuestions(String syllabusText, int count) {
                 return generateQuestions(syllabusText, null, null, count, null);
         }
@@ -108,33 +140,188 @@ public class AIService {
 
         public List<Question> generateQuestions(String syllabusText, String fileData, String mimeType, int count,
                         List<Map<String, Object>> weights) {
+                return generateQuestions(syllabusText, fileData, mimeType, count, weights, GenerationListener.NONE);
+        }
+
+        /**
+         * Same as {@link #generateQuestions(String, String, String, int, List)}, but
+         * every question is also passed to {@code listener} as soon as it is parsed,
+         * and the generation stops early once the listener reports it is cancelled.
+         * A cancelled generation is neither cached nor replaced by mock questions.
+         */
+        public List<Question> generateQuestions(String syllabusText, String fileData, String mimeType, int count,
+                        List<Map<String, Object>> weights, GenerationListener listener) {
+                InlineData file = fileData == null || fileData.isBlank() ? null
+                                : InlineData.ofBase64(fileData, mimeType);
+                return generateQuestions(syllabusText, file, count, weights, listener);
+        }
+
+        /**
+         * Same as {@link #generateQuestions(String, String, String, int, List)} for
+         * an upload spooled to disk. The file is Base64-encoded on the fly while
+         * the request is sent, so it is never held in memory.
+         */
+        public List<Question> generateQuestionsFromFile(String syllabusText, java.nio.file.Path file, String mimeType,
+                        int count, List<Map<String, Object>> weights) throws java.io.IOException {
+                return generateQuestionsFromFile(syllabusText, file, mimeType, count, weights,
+                                GenerationListener.NONE);
+        }
+
+        public List<Question> generateQuestionsFromFile(String syllabusText, java.nio.file.Path file, String mimeType,
+                        int count, List<Map<String, Object>> weights, GenerationListener listener)
+                        throws java.io.IOException {
+                return generateQuestions(syllabusText, InlineData.ofFile(file, mimeType), count, weights, listener);
+        }
+
+        /** A document for Gemini's inlineData part, readable as Base64 as many times as needed. */
+        private static final class InlineData {
+                final String mimeType;
+                final long base64Length;
+                final java.util.function.Supplier<java.io.InputStream> base64;
+                // The decoded document, for content hashing.
+                final java.util.function.Supplier<java.io.InputStream> raw;
+
+                private InlineData(String mimeType, long base64Length,
+                                java.util.function.Supplier<java.io.InputStream> base64,
+                                java.util.function.Supplier<java.io.InputStream> raw) {
+                        this.mimeType = mimeType != null ? mimeType : "application/octet-stream";
+                        this.base64Length = base64Length;
+                        this.base64 = base64;
+                        this.raw = raw;
+                }
+
+                static InlineData ofBase64(String data, String mimeType) {
+                        byte[] bytes = data.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+                        return new InlineData(mimeType, bytes.length, () -> new java.io.ByteArrayInputStream(bytes),
+                                        () -> java.util.Base64.getMimeDecoder()
+                                                        .wrap(new java.io.ByteArrayInputStream(bytes)));
+                }
+
+                static InlineData ofFile(java.nio.file.Path file, String mimeType) throws java.io.IOException {
+                        long size = java.nio.file.Files.size(file);
+                        java.util.function.Supplier<java.io.InputStream> open = () -> {
+                                try {
+                                        return java.nio.file.Files.newInputStream(file);
+                                } catch (java.io.IOException e) {
+                                        throw new java.io.UncheckedIOException(e);
+                                }
+                        };
+                        return new InlineData(mimeType, com.quiz.util.Base64EncodingInputStream.encodedLength(size),
+                                        () -> new com.quiz.util.Base64EncodingInputStream(open.get()), open);
+                }
+
+                /** SHA-256 of the document bytes, read as a stream. */
+                String digest() throws java.io.IOException {
+                        try (java.io.InputStream in = raw.get()) {
+                                java.security.MessageDigest sha = java.security.MessageDigest.getInstance("SHA-256");
+                                byte[] buf = new byte[8192];
+                                int n;
+                                while ((n = in.read(buf)) > 0)
+                                        sha.update(buf, 0, n);
+                                return java.util.HexFormat.of().formatHex(sha.digest());
+                        } catch (java.security.NoSuchAlgorithmException e) {
+                                throw new IllegalStateException(e);
+                        }
+                }
+        }
+
+        private List<Question> generateQuestions(String syllabusText, InlineData file, int count,
+                        List<Map<String, Object>> weights, GenerationListener listener) {
                 // Priority: Gemini > GLM > Mock
-                if (geminiApiKey != null && !geminiApiKey.isBlank()) {
-                        logger.info("Using Gemini AI for question generation. Model: {}", geminiModel);
+                boolean useGemini = geminiApiKey != null && !geminiApiKey.isBlank();
+                boolean useGlm = !useGemini && glmApiKey != null && !glmApiKey.isBlank() && file == null;
+                if (!useGemini && !useGlm) {
+                        logger.warn("No suitable AI API Keys found or Multimodal requested without Gemini. Falling back to Mock DB.");
+                        List<Question> mock = generateMockQuestions(count);
+                        mock.forEach(listener::onQuestion);
+                        return mock;
+                }
 
-                        // Check if model supports multimodal (Gemma does not support inlineData in this
-                        // API version)
-                        boolean isGemma = geminiModel != null && geminiModel.toLowerCase().contains("gemma");
+                // Check if model supports multimodal (Gemma does not support inlineData in this
+                // API version)
+                boolean isGemma = geminiModel != null && geminiModel.toLowerCase().contains("gemma");
+                boolean multimodal = useGemini && !isGemma && file != null;
+                if (useGemini && isGemma && file != null) {
+                        logger.warn("Multimodal input provided but model is '{}'. Ignoring file/image data and using text-only.",
+                                        geminiModel);
+                }
+
+                // Same inputs, same model, same prompt -> same answer; reuse it.
+                String key;
+                try {
+                        key = cache.key("generate", PROMPT_VERSION, useGemini ? "gemini" : "glm",
+                                        useGemini ? geminiModel : glmModel,
+                                        GenerationCache.normalize(syllabusText),
+                                        multimodal ? file.mimeType + ":" + file.digest() : "",
+                                        Integer.toString(count), weights,
+                                        multimodal ? "" : chunkMaxTokens + "/" + chunkOverlapTokens,
+                                        dedupThreshold + "/" + (multimodal ? 0 : topUpRounds));
+                } catch (java.io.IOException e) {
+                        logger.warn("Could not hash syllabus file, skipping cache: {}", e.getMessage());
+                        key = null;
+                }
+                if (key != null) {
+                        List<Question> cached = cache.get(key, QUESTION_LIST);
+                        if (cached != null) {
+                                logger.info("Returning {} cached questions", cached.size());
+                                cached.forEach(listener::onQuestion);
+                                return cached;
+                        }
+                }
 
-                        if (!isGemma && fileData != null && !fileData.isBlank()) {
-                                return generateMultimodalGemini(syllabusText, fileData, mimeType, count, weights);
+                // Notes any failed request on the way; only complete results are cached.
+                java.util.concurrent.atomic.AtomicBoolean failed = new java.util.concurrent.atomic.AtomicBoolean();
+                GenerationListener tracked = new GenerationListener() {
+                        @Override
+                        public void onQuestion(Question q) {
+                                listener.onQuestion(q);
                         }
 
-                        if (isGemma && fileData != null && !fileData.isBlank()) {
-                                logger.warn("Multimodal input provided but model is '{}'. Ignoring file/image data and using text-only.",
-                                                geminiModel);
+                        @Override
+                        public boolean isCancelled() {
+                                return listener.isCancelled();
                         }
 
-                        return generateQuestionsInternal(syllabusText, count, false, weights);
-                }
+                        @Override
+                        public void onBatchFailed() {
+                                failed.set(true);
+                                listener.onBatchFailed();
+                        }
+                };
 
-                if (glmApiKey != null && !glmApiKey.isBlank() && (fileData == null || fileData.isBlank())) {
+                List<Question> generated;
+                if (multimodal) {
+                        logger.info("Using Gemini AI for question generation. Model: {}", geminiModel);
+                        generated = generateMultimodalGemini(syllabusText, file, count, weights, tracked);
+                } else if (useGemini) {
+                        logger.info("Using Gemini AI for question generation. Model: {}", geminiModel);
+                        generated = generateQuestionsInternal(syllabusText, count, false, weights, tracked);
+                } else {
                         logger.info("Using GLM AI for question generation.");
-                        return generateQuestionsInternal(syllabusText, count, true, weights);
+                        generated = generateQuestionsInternal(syllabusText, count, true, weights, tracked);
                 }
 
-                logger.warn("No suitable AI API Keys found or Multimodal requested without Gemini. Falling back to Mock DB.");
-                return generateMockQuestions(count);
+                if (listener.isCancelled()) {
+                        logger.info("Generation cancelled after {} questions", generated.size());
+                        return generated;
+                }
+                if (generated.isEmpty()) {
+                        // Never cache a failure, and never cache the mock fallback.
+                        if (multimodal)
+                                return generated;
+                        logger.error("All batch requests failed. Returning mock questions as fallback.");
+                        List<Question> mock = generateMockQuestions(count);
+                        mock.forEach(listener::onQuestion);
+                        return mock;
+                }
+                // A short answer or one with a failed batch is served but not
+                // kept, so the next request for the same syllabus tries again.
+                if (key != null && generated.size() >= count && !failed.get())
+                        cache.put(key, generated);
+                else if (key != null)
+                        logger.info("Not caching incomplete generation: {} of {} questions{}", generated.size(), count,
+                                        failed.get() ? ", some requests failed" : "");
+                return generated;
         }
 
         public Map<String, Object> analyzeSyllabus(String syllabusText) {
@@ -142,6 +329,18 @@ public class AIService {
                         return Map.of("error", "AI API Key not configured");
                 }
 
+                String key = cache.key("analyze", PROMPT_VERSION, geminiModel, GenerationCache.normalize(syllabusText));
+                Map<String, Object> cached = cache.get(key, ANALYSIS);
+                if (cached != null)
+                        return cached;
+
+                Map<String, Object> analysis = requestAnalysis(syllabusText);
+                if (!analysis.containsKey("error"))
+                        cache.put(key, analysis);
+                return analysis;
+        }
+
+        private Map<String, Object> requestAnalysis(String syllabusText) {
                 try {
                         String prompt = "You are an expert curriculum analyst. Analyze the following syllabus/course document and: \n"
                                         +
@@ -177,17 +376,15 @@ public class AIService {
                                         .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
                                         .build();
 
-                        java.net.http.HttpResponse<String> response = httpClient.send(request,
-                                        java.net.http.HttpResponse.BodyHandlers.ofString());
+                        java.net.http.HttpResponse<String> response = executor.send(AIRequestExecutor.GEMINI,
+                                        request);
 
                         if (response.statusCode() == 200) {
                                 com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(response.body());
                                 String responseText = root.path("candidates").get(0).path("content").path("parts")
                                                 .get(0).path("text").asText();
                                 String cleanedJson = responseText.replace("```json", "").replace("```", "").trim();
-                                return mapper.readValue(cleanedJson,
-                                                new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {
-                                                });
+                                return mapper.readValue(cleanedJson, ANALYSIS);
                         }
                 } catch (Exception e) {
                         logger.error("Failed to analyze syllabus", e);
@@ -195,38 +392,72 @@ public class AIService {
                 return Map.of("error", "Analysis failed");
         }
 
-        private List<Question> generateMultimodalGemini(String text, String fileData, String mimeType, int count,
-                        List<Map<String, Object>> weights) {
+        private List<Question> generateMultimodalGemini(String text, InlineData file, int count,
+                        List<Map<String, Object>> weights, GenerationListener listener) {
                 try {
                         logger.info("Sending Multimodal Request to Gemini (Size: {} bytes, Type: {})",
-                                        fileData.length(), mimeType);
+                                        file.base64Length, file.mimeType);
 
                         String prompt = constructPrompt(text != null ? text : "Refer to the attached document.", count,
-                                        weights);
+                                        weights, null);
 
-                        // Gemini API request format with Inline Data
+                        // Gemini API request format with Inline Data. The document goes in
+                        // where the placeholder is, streamed, so the body is never built in memory.
+                        String placeholder = "@@inlineData-" + java.util.UUID.randomUUID() + "@@";
                         Map<String, Object> bodyMap = Map.of(
                                         "contents", List.of(
                                                         Map.of("parts", List.of(
                                                                         Map.of("text", prompt),
                                                                         Map.of("inlineData", Map.of(
-                                                                                        "mimeType", mimeType,
-                                                                                        "data", fileData))))),
+                                                                                        "mimeType", file.mimeType,
+                                                                                        "data", placeholder))))),
                                         "generationConfig", Map.of(
                                                         "temperature", 0.7,
                                                         "maxOutputTokens", 8192));
 
-                        String requestBody = mapper.writeValueAsString(bodyMap);
-                        String urlWithKey = geminiApiUrl + "?key=" + geminiApiKey;
+                        String envelope = mapper.writeValueAsString(bodyMap);
+                        int at = envelope.indexOf(placeholder);
+                        byte[] head = envelope.substring(0, at).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                        byte[] tail = envelope.substring(at + placeholder.length())
+                                        .getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                        java.net.http.HttpRequest.BodyPublisher body = java.net.http.HttpRequest.BodyPublishers
+                                        .fromPublisher(java.net.http.HttpRequest.BodyPublishers.ofInputStream(
+                                                        () -> new java.io.SequenceInputStream(java.util.Collections.enumeration(List.of(
+                                                                        new java.io.ByteArrayInputStream(head),
+                                                                        file.base64.get(),
+                                                                        new java.io.ByteArrayInputStream(tail))))),
+                                                        head.length + file.base64Length + tail.length);
+
+                        // A second upload of the document is too costly to top up; just drop repeats
+                        NearDuplicateIndex<Question> seen = new NearDuplicateIndex<>(dedupThreshold);
+                        List<Question> kept = java.util.Collections.synchronizedList(new ArrayList<>());
+                        GenerationListener emit = new GenerationListener() {
+                                @Override
+                                public void onQuestion(Question q) {
+                                        if (seen.addIfNew(q, q)) {
+                                                kept.add(q);
+                                                listener.onQuestion(q);
+                                        }
+                                }
 
-                        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
-                                        .uri(java.net.URI.create(urlWithKey))
-                                        .header("Content-Type", "application/json")
-                                        .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
-                                        .build();
+                                @Override
+                                public boolean isCancelled() {
+                                        return listener.isCancelled();
+                                }
 
-                        java.net.http.HttpResponse<String> response = httpClient.send(request,
-                                        java.net.http.HttpResponse.BodyHandlers.ofString());
+                                @Override
+                                public void onBatchFailed() {
+                                        listener.onBatchFailed();
+                                }
+                        };
+
+                        if (streamingAvailable()) {
+                                streamGemini(geminiRequest(body, true), emit);
+                                return new ArrayList<>(kept);
+                        }
+
+                        java.net.http.HttpResponse<String> response = executor.send(AIRequestExecutor.GEMINI,
+                                        geminiRequest(body, false));
 
                         if (response.statusCode() == 200) {
                                 com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(response.body());
@@ -241,16 +472,18 @@ public class AIService {
                                                 .asText();
                                 String cleanedJson = extractJsonArray(responseText);
 
-                                return mapper.readValue(cleanedJson,
-                                                new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
-                                                });
+                                List<Question> questions = mapper.readValue(cleanedJson, QUESTION_LIST);
+                                questions.forEach(emit::onQuestion);
+                                return new ArrayList<>(kept);
                         } else {
                                 logger.error("Gemini Multimodal Error: Status={}, Body={}", response.statusCode(),
                                                 response.body());
+                                listener.onBatchFailed();
                         }
 
                 } catch (Exception e) {
                         logger.error("Failed to generate multimodal questions", e);
+                        listener.onBatchFailed();
                 }
                 return new ArrayList<>();
         }
@@ -259,67 +492,152 @@ public class AIService {
         private static final int MAX_QUESTIONS_PER_REQUEST = 20;
 
         private List<Question> generateQuestionsInternal(String syllabusText, int count, boolean useGlm,
-                        List<Map<String, Object>> weights) {
-                List<String> chunks = splitString(syllabusText, CHUNK_SIZE);
+                        List<Map<String, Object>> weights, GenerationListener listener) {
+                List<SyllabusChunker.Chunk> chunks = new SyllabusChunker(chunkMaxTokens, chunkOverlapTokens)
+                                .chunk(syllabusText);
+                if (chunks.isEmpty())
+                        return new ArrayList<>();
                 int totalChunks = chunks.size();
 
                 logger.info("Split input text into {} chunks for processing.", totalChunks);
 
-                List<java.util.concurrent.CompletableFuture<List<Question>>> futures = new ArrayList<>();
+                String provider = useGlm ? AIRequestExecutor.GLM : AIRequestExecutor.GEMINI;
 
-                int baseQ = count / totalChunks;
-                int remainder = count % totalChunks;
+                // Distribute questions by chapter weight (falls back to chunk size)
+                int[] quotas = SyllabusChunker.allocate(chunks, count, weights);
 
+                // Every question passes through one index shared by all batches, so a
+                // repeat is dropped before anyone sees it (streamed or not). Each chunk
+                // keeps what it contributed so top-ups know what to ask for.
+                NearDuplicateIndex<Question> seen = new NearDuplicateIndex<>(dedupThreshold);
+                List<Question> accepted = new ArrayList<>();
+                List<List<String>> asked = new ArrayList<>();
+                java.util.concurrent.atomic.AtomicInteger dropped = new java.util.concurrent.atomic.AtomicInteger();
+                List<GenerationListener> emitters = new ArrayList<>();
                 for (int i = 0; i < totalChunks; i++) {
-                        // Distribute questions evenly to text chunks
-                        int qForThisChunk = baseQ + (i < remainder ? 1 : 0);
-
-                        if (qForThisChunk > 0) {
-                                String chunkText = chunks.get(i);
-
-                                // Further split if this chunk requires too many questions
-                                int subBatches = (int) Math.ceil((double) qForThisChunk / MAX_QUESTIONS_PER_REQUEST);
-                                int questionsPerSubBatch = qForThisChunk / subBatches;
-                                int subRemainder = qForThisChunk % subBatches;
-
-                                for (int j = 0; j < subBatches; j++) {
-                                        final int batchCount = questionsPerSubBatch + (j < subRemainder ? 1 : 0);
-
-                                        futures.add(java.util.concurrent.CompletableFuture.supplyAsync(() -> {
-                                                try {
-                                                        if (useGlm) {
-                                                                return generateBatchGLM(chunkText, batchCount, weights);
-                                                        } else {
-                                                                return generateBatch(chunkText, batchCount, weights);
-                                                        }
-                                                } catch (Exception e) {
-                                                        logger.error("Error generating batch for chunk", e);
-                                                        return new ArrayList<>();
+                        int quota = quotas[i];
+                        List<String> chunkAsked = new ArrayList<>();
+                        asked.add(chunkAsked);
+                        emitters.add(new GenerationListener() {
+                                @Override
+                                public void onQuestion(Question q) {
+                                        synchronized (seen) {
+                                                // Top-ups may overshoot; the quota is what was asked for
+                                                if (chunkAsked.size() >= quota)
+                                                        return;
+                                                if (!seen.addIfNew(q, q)) {
+                                                        dropped.incrementAndGet();
+                                                        return;
                                                 }
-                                        }));
+                                                chunkAsked.add(q.getText());
+                                                accepted.add(q);
+                                        }
+                                        // Questions are complete (CO filled in) before anyone sees them
+                                        assignDefaultCOs(List.of(q), weights);
+                                        listener.onQuestion(q);
                                 }
-                        }
+
+                                @Override
+                                public boolean isCancelled() {
+                                        return listener.isCancelled();
+                                }
+
+                                @Override
+                                public void onBatchFailed() {
+                                        listener.onBatchFailed();
+                                }
+                        });
                 }
 
-                List<Question> allQuestions = futures.stream()
-                                .map(java.util.concurrent.CompletableFuture::join)
-                                .flatMap(List::stream)
-                                .collect(java.util.stream.Collectors.toList());
+                List<java.util.concurrent.CompletableFuture<List<Question>>> futures = new ArrayList<>();
+                for (int i = 0; i < totalChunks; i++) {
+                        if (quotas[i] > 0) {
+                                // Only ask for the chapters this chunk actually covers
+                                submitBatches(futures, provider, chunks.get(i).getText(), quotas[i],
+                                                SyllabusChunker.weightsFor(chunks.get(i), weights), null, emitters.get(i));
+                        }
+                }
+                futures.forEach(java.util.concurrent.CompletableFuture::join);
+
+                // Refill what duplicates (or short answers) left missing, per chunk,
+                // telling the model what it already asked. Skipped on total failure:
+                // the caller falls back instead.
+                for (int round = 1; round <= topUpRounds && !listener.isCancelled(); round++) {
+                        synchronized (seen) {
+                                if (accepted.isEmpty())
+                                        break;
+                        }
+                        futures.clear();
+                        int missing = 0;
+                        for (int i = 0; i < totalChunks; i++) {
+                                List<String> chunkAsked;
+                                synchronized (seen) {
+                                        chunkAsked = new ArrayList<>(asked.get(i));
+                                }
+                                int deficit = quotas[i] - chunkAsked.size();
+                                if (deficit <= 0)
+                                        continue;
+                                missing += deficit;
+                                submitBatches(futures, provider, chunks.get(i).getText(), deficit,
+                                                SyllabusChunker.weightsFor(chunks.get(i), weights), chunkAsked, emitters.get(i));
+                        }
+                        if (futures.isEmpty())
+                                break;
+                        logger.info("Top-up round {}: requesting {} questions ({} duplicates dropped so far)", round,
+                                        missing, dropped.get());
+                        futures.forEach(java.util.concurrent.CompletableFuture::join);
+                }
 
+                List<Question> allQuestions;
+                synchronized (seen) {
+                        allQuestions = new ArrayList<>(accepted);
+                }
                 if (allQuestions.isEmpty()) {
-                        logger.error("All batch requests failed. Returning mock questions as fallback.");
-                        return generateMockQuestions(count);
+                        // The caller decides on a fallback; failures must not be cached.
+                        return allQuestions;
                 }
 
-                // POST-PROCESS: Ensure every question has a valid Course Outcome (CO)
-                // If AI missed it, we try to map it from the provided weights or default to
-                // CO1.
-                assignDefaultCOs(allQuestions, weights);
-
-                logger.info("Successfully generated {} questions from {} chunks.", allQuestions.size(), totalChunks);
+                logger.info("Successfully generated {} questions from {} chunks ({} near-duplicates dropped).",
+                                allQuestions.size(), totalChunks, dropped.get());
                 return allQuestions;
         }
 
+        // Queues the batches for one chunk, at most MAX_QUESTIONS_PER_REQUEST each.
+        // Results reach the caller through emit; the futures only signal completion.
+        private void submitBatches(List<java.util.concurrent.CompletableFuture<List<Question>>> futures,
+                        String provider, String chunkText, int count, List<Map<String, Object>> chunkWeights,
+                        List<String> avoid, GenerationListener emit) {
+                boolean useGlm = AIRequestExecutor.GLM.equals(provider);
+                // Further split if this chunk requires too many questions
+                int subBatches = (int) Math.ceil((double) count / MAX_QUESTIONS_PER_REQUEST);
+                int questionsPerSubBatch = count / subBatches;
+                int subRemainder = count % subBatches;
+
+                for (int j = 0; j < subBatches; j++) {
+                        final int batchCount = questionsPerSubBatch + (j < subRemainder ? 1 : 0);
+
+                        // Runs on the AI pool, not the common ForkJoinPool
+                        futures.add(executor.submit(provider, () -> {
+                                if (emit.isCancelled())
+                                        return new ArrayList<Question>();
+                                try {
+                                        if (useGlm) {
+                                                List<Question> batch = generateBatchGLM(chunkText, batchCount, chunkWeights,
+                                                                avoid);
+                                                batch.forEach(emit::onQuestion);
+                                                return batch;
+                                        } else {
+                                                return generateBatch(chunkText, batchCount, chunkWeights, avoid, emit);
+                                        }
+                                } catch (Exception e) {
+                                        logger.error("Error generating batch for chunk", e);
+                                        emit.onBatchFailed();
+                                        return new ArrayList<>();
+                                }
+                        }));
+                }
+        }
+
         private void assignDefaultCOs(List<Question> questions, List<Map<String, Object>> weights) {
                 // Pre-process weights for fast lookup: ChapterName -> MappedCO
                 Map<String, String> chapterToCO = new java.util.HashMap<>();
@@ -347,17 +665,10 @@ public class AIService {
                 }
         }
 
-        private List<String> splitString(String text, int maxSize) {
-                List<String> res = new ArrayList<>();
-                int len = text.length();
-                for (int i = 0; i < len; i += maxSize) {
-                        res.add(text.substring(i, Math.min(len, i + maxSize)));
-                }
-                return res;
-        }
-
-        // Helper method to construct the prompt string.
-        private String constructPrompt(String syllabusText, int count, List<Map<String, Object>> weights) {
+        // Helper method to construct the prompt string. avoid lists questions already
+        // generated from this text (for top-up batches); null on a first request.
+        private String constructPrompt(String syllabusText, int count, List<Map<String, Object>> weights,
+                        List<String> avoid) {
                 StringBuilder weightConstraint = new StringBuilder();
                 if (weights != null && !weights.isEmpty()) {
                         weightConstraint.append("\nDISTRIBUTE QUESTIONS ACCORDING TO THESE CHAPTER WEIGHTS:\n");
@@ -394,7 +705,7 @@ public class AIService {
                                 "- Return the response as a valid JSON ARRAY of objects.\n\n" +
                                 "JSON Format:\n" +
                                 "[\n" +
-                                "  {\"text\": \"...\", \"optionA\": \"...\", \"optionB\": \"...\", \"optionC\": \"...\", \"optionD\": \"...\", \"correct\": \"A\", \"explanation\": \"...\", \"chapter\": \"Chapter Name\", \"courseOutcome\": \"CO1\"},\n"
+                                "  {\"text\": \"...\", \"optionA\": \"...\", \"optionB\": \"...\", \"optionC\": \"...\", \"optionD\": \"...\", \"correct\": \"A\", \"explanation\": \"...\", \"chapter\": \"Chapter Name\", \"courseOutcome\": \"CO1\", \"difficulty\": \"Medium\"},\n"
                                 +
                                 "  ... (total " + count + " objects)\n" +
                                 "]\n\n" +
@@ -402,19 +713,36 @@ public class AIService {
                                 "1. Output MUST be purely valid JSON. No markdown formatting, no conversational text.\n"
                                 +
                                 "2. Escape all quotes and backslashes.\n" +
-                                "3. Mix of difficulty: 30% Hard, 40% Medium, 30% Conceptual.\n" +
+                                "3. Mix of difficulty: 30% Hard, 40% Medium, 30% Conceptual; put that level in the 'difficulty' field.\n" +
                                 "4. INCLUDE CODE SNIPPETS in the 'text' field where applicable.\n" +
                                 "5. 'explanation' must be concise (max 30 words).\n" +
                                 "6. 'chapter' field must MATCH one of the chapter names provided in weights or a relevant topic name from the text.\n"
                                 +
                                 "7. 'courseOutcome' field is REQUIRED (e.g., 'CO1', 'CO2'). Map the question to the most relevant Course Outcome from the text.\n\n"
                                 +
+                                avoidConstraint(avoid) +
                                 "Reference Text:\n" + syllabusText;
         }
 
-        private List<Question> generateBatchGLM(String syllabusText, int count, List<Map<String, Object>> weights)
-                        throws Exception {
-                String prompt = constructPrompt(syllabusText, count, weights);
+        // Keeps the list short: enough for the model to steer away from covered
+        // ground without blowing the prompt up.
+        private static final int MAX_AVOID = 40;
+
+        private static String avoidConstraint(List<String> avoid) {
+                if (avoid == null || avoid.isEmpty())
+                        return "";
+                StringBuilder sb = new StringBuilder(
+                                "ALREADY ASKED (do NOT repeat or rephrase these; cover different concepts):\n");
+                for (String text : avoid.subList(Math.max(0, avoid.size() - MAX_AVOID), avoid.size())) {
+                        String line = text.replaceAll("\\s+", " ").trim();
+                        sb.append("- ").append(line.length() > 150 ? line.substring(0, 150) + "..." : line).append("\n");
+                }
+                return sb.append("\n").toString();
+        }
+
+        private List<Question> generateBatchGLM(String syllabusText, int count, List<Map<String, Object>> weights,
+                        List<String> avoid) throws Exception {
+                String prompt = constructPrompt(syllabusText, count, weights, avoid);
 
                 // GLM (OpenAI-compatible) API request format
                 Map<String, Object> bodyMap = Map.of(
@@ -425,79 +753,62 @@ public class AIService {
 
                 String requestBody = mapper.writeValueAsString(bodyMap);
 
-                int maxRetries = 3;
-                int attempt = 0;
-
-                while (attempt < maxRetries) {
-                        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
-                                        .uri(java.net.URI.create(glmApiUrl))
-                                        .header("Content-Type", "application/json")
-                                        .header("Authorization", "Bearer " + glmApiKey)
-                                        .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
-                                        .build();
+                java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
+                                .uri(java.net.URI.create(glmApiUrl))
+                                .header("Content-Type", "application/json")
+                                .header("Authorization", "Bearer " + glmApiKey)
+                                .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
+                                .build();
 
-                        java.net.http.HttpResponse<String> response = httpClient.send(request,
-                                        java.net.http.HttpResponse.BodyHandlers.ofString());
+                // Rate limiting and retries on 429/5xx happen in the executor
+                java.net.http.HttpResponse<String> response = executor.send(AIRequestExecutor.GLM, request);
 
-                        if (response.statusCode() == 200) {
-                                com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(response.body());
+                if (response.statusCode() == 200) {
+                        com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(response.body());
 
-                                // GLM/OpenAI response structure: choices[0].message.content
-                                String responseText = root.path("choices").get(0)
-                                                .path("message").path("content").asText();
+                        // GLM/OpenAI response structure: choices[0].message.content
+                        String responseText = root.path("choices").get(0)
+                                        .path("message").path("content").asText();
 
-                                if (logger.isDebugEnabled()) {
-                                        logger.debug("Raw GLM Batch Response: {}...",
-                                                        responseText.substring(0,
-                                                                        Math.min(responseText.length(), 200)));
-                                }
+                        if (logger.isDebugEnabled()) {
+                                logger.debug("Raw GLM Batch Response: {}...",
+                                                responseText.substring(0,
+                                                                Math.min(responseText.length(), 200)));
+                        }
 
-                                String cleanedJson = extractJsonArray(responseText);
+                        String cleanedJson = extractJsonArray(responseText);
 
-                                try {
-                                        return mapper.readValue(cleanedJson,
-                                                        new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
-                                                        });
-                                } catch (Exception e) {
-                                        logger.error("Failed to parse GLM batch JSON: {}", e.getMessage());
-                                        // Basic repair attempt
-                                        if (e.getMessage().contains("Unexpected end-of-input")) {
-                                                try {
-                                                        return mapper.readValue(cleanedJson + "]",
-                                                                        new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
-                                                                        });
-                                                } catch (Exception ex) {
-                                                        logger.error("Second attempt failed: {}", ex.getMessage());
-                                                }
+                        try {
+                                return mapper.readValue(cleanedJson,
+                                                new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
+                                                });
+                        } catch (Exception e) {
+                                logger.error("Failed to parse GLM batch JSON: {}", e.getMessage());
+                                // Basic repair attempt
+                                if (e.getMessage().contains("Unexpected end-of-input")) {
+                                        try {
+                                                return mapper.readValue(cleanedJson + "]",
+                                                                new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
+                                                                });
+                                        } catch (Exception ex) {
+                                                logger.error("Second attempt failed: {}", ex.getMessage());
                                         }
-                                        return new ArrayList<>();
                                 }
-                        } else if (response.statusCode() == 429) {
-                                attempt++;
-                                logger.warn("GLM 429 Rate Limit Hit. Sleeping 5s before retry {}/{}...", attempt,
-                                                maxRetries);
-                                try {
-                                        Thread.sleep(5000);
-                                } catch (InterruptedException ie) {
-                                        Thread.currentThread().interrupt();
-                                        throw new Exception("Interrupted during rate limit backoff");
-                                }
-                        } else {
-                                logger.error("GLM API Error: Status={}, Body={}", response.statusCode(),
-                                                response.body());
                                 return new ArrayList<>();
                         }
                 }
-                return new ArrayList<>();
+                // Thrown rather than returned empty so the batch counts as failed
+                throw new java.io.IOException("GLM API Error: Status=" + response.statusCode() + ", Body="
+                                + response.body());
         }
 
         // Here we handle the actual communication with Gemini for a single batch.
         // We prompt it to give us strict JSON back so we can easily turn it into
         // Question objects.
-        private List<Question> generateBatch(String syllabusText, int count, List<Map<String, Object>> weights)
-                        throws Exception {
+        private List<Question> generateBatch(String syllabusText, int count, List<Map<String, Object>> weights,
+                        List<String> avoid, GenerationListener emit) throws Exception {
                 // Construct the prompt for Gemini
-                String prompt = constructPrompt(syllabusText, count, weights);
+                String prompt = constructPrompt(syllabusText, count, weights, avoid);
 
                 // Gemini API request format
                 Map<String, Object> bodyMap = Map.of(
@@ -509,97 +820,145 @@ public class AIService {
                                                 "maxOutputTokens", 8192));
 
                 String requestBody = mapper.writeValueAsString(bodyMap);
+                java.net.http.HttpRequest.BodyPublisher body = java.net.http.HttpRequest.BodyPublishers
+                                .ofString(requestBody);
 
-                // Add API key as query parameter
-                String urlWithKey = geminiApiUrl + "?key=" + geminiApiKey;
-
-                int maxRetries = 3;
-                int attempt = 0;
+                // Questions are emitted one by one as the answer streams in
+                if (streamingAvailable())
+                        return streamGemini(geminiRequest(body, true), emit);
 
-                while (attempt < maxRetries) {
-                        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
-                                        .uri(java.net.URI.create(urlWithKey))
-                                        .header("Content-Type", "application/json")
-                                        .POST(java.net.http.HttpRequest.BodyPublishers.ofString(requestBody))
-                                        .build();
-
-                        java.net.http.HttpResponse<String> response = httpClient.send(request,
-                                        java.net.http.HttpResponse.BodyHandlers.ofString());
+                List<Question> questions = generateBatchBlocking(body);
+                questions.forEach(emit::onQuestion);
+                return questions;
+        }
 
-                        if (response.statusCode() == 200) {
-                                com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(response.body());
-                                String responseText = root.path("candidates").get(0)
-                                                .path("content").path("parts").get(0)
-                                                .path("text").asText();
-
-                                if (logger.isDebugEnabled()) {
-                                        logger.debug("Raw Gemini Batch Response: {}...",
-                                                        responseText.substring(0,
-                                                                        Math.min(responseText.length(), 200)));
-                                }
+        // Waits for the whole answer, then parses it (with repair fallbacks).
+        private List<Question> generateBatchBlocking(java.net.http.HttpRequest.BodyPublisher body) throws Exception {
+                // Rate limiting and retries on 429/5xx happen in the executor
+                java.net.http.HttpResponse<String> response = executor.send(AIRequestExecutor.GEMINI,
+                                geminiRequest(body, false));
+
+                if (response.statusCode() == 200) {
+                        com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(response.body());
+                        String responseText = root.path("candidates").get(0)
+                                        .path("content").path("parts").get(0)
+                                        .path("text").asText();
+
+                        if (logger.isDebugEnabled()) {
+                                logger.debug("Raw Gemini Batch Response: {}...",
+                                                responseText.substring(0,
+                                                                Math.min(responseText.length(), 200)));
+                        }
 
-                                String cleanedJson = extractJsonArray(responseText);
+                        String cleanedJson = extractJsonArray(responseText);
 
-                                try {
-                                        return mapper.readValue(cleanedJson,
-                                                        new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
-                                                        });
-                                } catch (Exception e) {
-                                        logger.error("Failed to parse batch JSON: {}", e.getMessage());
-
-                                        // Fallback: Regex-based extraction for partial recovery
-                                        List<Question> recovered = new ArrayList<>();
-                                        java.util.regex.Pattern p = java.util.regex.Pattern.compile("\\{[\\s\\S]*?\\}");
-                                        java.util.regex.Matcher m = p.matcher(cleanedJson);
-                                        while (m.find()) {
-                                                String objStr = m.group();
-                                                try {
-                                                        Question q = mapper.readValue(objStr, Question.class);
-                                                        // Basic validation
-                                                        if (q.getText() != null && !q.getText().isBlank()) {
-                                                                recovered.add(q);
-                                                        }
-                                                } catch (Exception ex) {
-                                                        // Ignore individual malformed objects
+                        try {
+                                return mapper.readValue(cleanedJson,
+                                                new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
+                                                });
+                        } catch (Exception e) {
+                                logger.error("Failed to parse batch JSON: {}", e.getMessage());
+
+                                // Fallback: Regex-based extraction for partial recovery
+                                List<Question> recovered = new ArrayList<>();
+                                java.util.regex.Pattern p = java.util.regex.Pattern.compile("\\{[\\s\\S]*?\\}");
+                                java.util.regex.Matcher m = p.matcher(cleanedJson);
+                                while (m.find()) {
+                                        String objStr = m.group();
+                                        try {
+                                                Question q = mapper.readValue(objStr, Question.class);
+                                                // Basic validation
+                                                if (q.getText() != null && !q.getText().isBlank()) {
+                                                        recovered.add(q);
                                                 }
+                                        } catch (Exception ex) {
+                                                // Ignore individual malformed objects
                                         }
+                                }
 
-                                        if (!recovered.isEmpty()) {
-                                                logger.info("Recovered {} questions via regex fallback.",
-                                                                recovered.size());
-                                                return recovered;
-                                        }
+                                if (!recovered.isEmpty()) {
+                                        logger.info("Recovered {} questions via regex fallback.",
+                                                        recovered.size());
+                                        return recovered;
+                                }
 
-                                        // Try one more repair if it failed: adding closing bracket if missing
-                                        if (e.getMessage().contains("Unexpected end-of-input")) {
-                                                try {
-                                                        return mapper.readValue(cleanedJson + "]",
-                                                                        new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
-                                                                        });
-                                                } catch (Exception ex) {
-                                                        logger.error("Second attempt failed: {}", ex.getMessage());
-                                                }
+                                // Try one more repair if it failed: adding closing bracket if missing
+                                if (e.getMessage().contains("Unexpected end-of-input")) {
+                                        try {
+                                                return mapper.readValue(cleanedJson + "]",
+                                                                new com.fasterxml.jackson.core.type.TypeReference<List<Question>>() {
+                                                                });
+                                        } catch (Exception ex) {
+                                                logger.error("Second attempt failed: {}", ex.getMessage());
                                         }
-                                        return new ArrayList<>();
                                 }
-                        } else if (response.statusCode() == 429) {
-                                attempt++;
-                                logger.warn("Gemini 429 Rate Limit Hit. Sleeping 25s before retry {}/{}...", attempt,
-                                                maxRetries);
-                                try {
-                                        Thread.sleep(25000); // Wait 25s based on typical error message advice
-                                } catch (InterruptedException ie) {
-                                        Thread.currentThread().interrupt();
-                                        throw new Exception("Interrupted during rate limit backoff");
-                                }
-                        } else {
+                                return new ArrayList<>();
+                        }
+                }
+                // Thrown rather than returned empty so the batch counts as failed
+                throw new java.io.IOException("Gemini API Error: Status=" + response.statusCode() + ", Body="
+                                + response.body());
+        }
+
+        private boolean streamingAvailable() {
+                return geminiStreaming && geminiApiUrl.contains(":generateContent");
+        }
+
+        // The API key goes in as a query parameter; streaming uses the SSE variant of the endpoint.
+        private java.net.http.HttpRequest geminiRequest(java.net.http.HttpRequest.BodyPublisher body, boolean stream) {
+                String url = stream
+                                ? geminiApiUrl.replace(":generateContent", ":streamGenerateContent") + "?alt=sse&key="
+                                                + geminiApiKey
+                                : geminiApiUrl + "?key=" + geminiApiKey;
+                return java.net.http.HttpRequest.newBuilder()
+                                .uri(java.net.URI.create(url))
+                                .header("Content-Type", "application/json")
+                                .POST(body)
+                                .build();
+        }
+
+        // Reads Gemini's SSE stream. Every "data:" event carries the next piece of
+        // the answer text, which goes straight into the incremental parser.
+        private List<Question> streamGemini(java.net.http.HttpRequest request, GenerationListener emit)
+                        throws Exception {
+                long start = System.nanoTime();
+                boolean[] first = { true };
+                StreamingQuestionParser parser = new StreamingQuestionParser(mapper, q -> {
+                        if (first[0]) {
+                                first[0] = false;
+                                executor.record(AIRequestExecutor.GEMINI + ".first-question", System.nanoTime() - start);
+                        }
+                        emit.onQuestion(q);
+                });
+
+                java.net.http.HttpResponse<java.io.InputStream> response = executor.send(AIRequestExecutor.GEMINI,
+                                request, java.net.http.HttpResponse.BodyHandlers.ofInputStream());
+                try (java.io.BufferedReader reader = new java.io.BufferedReader(
+                                new java.io.InputStreamReader(response.body(), java.nio.charset.StandardCharsets.UTF_8))) {
+                        if (response.statusCode() != 200) {
                                 logger.error("Gemini API Error: Status={}, Body={}", response.statusCode(),
-                                                response.body());
-                                return new ArrayList<>(); // Non-retriable error
+                                                reader.lines().collect(java.util.stream.Collectors.joining("\n")));
+                                emit.onBatchFailed();
+                                return new ArrayList<>();
                         }
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                                // Closing the reader below aborts the upstream request
+                                if (emit.isCancelled())
+                                        break;
+                                if (!line.startsWith("data:"))
+                                        continue;
+                                com.fasterxml.jackson.databind.JsonNode event = mapper.readTree(line.substring(5));
+                                for (com.fasterxml.jackson.databind.JsonNode part : event.path("candidates").path(0)
+                                                .path("content").path("parts"))
+                                        parser.feed(part.path("text").asText(""));
+                        }
+                } catch (java.io.IOException e) {
+                        // Keep whatever arrived before the connection dropped.
+                        logger.warn("Gemini stream interrupted after {} questions: {}", parser.count(), e.getMessage());
+                        emit.onBatchFailed();
                 }
-                logger.error("Max retries exceeded for Gemini API.");
-                return new ArrayList<>();
+                return parser.finish();
         }
 
         private String extractJsonArray(String input) {
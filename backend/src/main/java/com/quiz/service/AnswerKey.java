@@ -0,0 +1,88 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pre-compiled, immutable answer key for a single session.
+ * Built once when the session's questions are saved so grading and result
+ * generation never have to go back to the database.
+ */
+public final class AnswerKey {
+
+    /** Marker for a missing or unrecognised option. */
+    public static final byte NO_OPTION = -1;
+
+    // Question ids in ascending order, for binary search.
+    private final long[] sortedIds;
+    // sortedIds[i] -> position of that question in the session.
+    private final int[] positions;
+    // Correct option per position: 0 = A, 1 = B, 2 = C, 3 = D.
+    private final byte[] correct;
+    // Display fields (text, options, explanation) per position.
+    private final Question[] questions;
+
+    private AnswerKey(Question[] questions) {
+        int n = questions.length;
+        this.questions = questions;
+        this.correct = new byte[n];
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            correct[i] = optionCode(questions[i].getCorrect());
+            ids[i] = questions[i].getId();
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(ids[a], ids[b]));
+        this.sortedIds = new long[n];
+        this.positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedIds[i] = ids[order[i]];
+            positions[i] = order[i];
+        }
+    }
+
+    /**
+     * Compiles a key from persisted questions, in session order. Questions
+     * without an id are skipped since they can never be answered.
+     */
+    public static AnswerKey of(List<Question> questions) {
+        return new AnswerKey(questions.stream()
+                .filter(q -> q.getId() != null)
+                .toArray(Question[]::new));
+    }
+
+    /** Converts "A".."D" (any case) to 0..3, anything else to {@link #NO_OPTION}. */
+    public static byte optionCode(String option) {
+        if (option == null || option.length() != 1)
+            return NO_OPTION;
+        char c = Character.toUpperCase(option.charAt(0));
+        return (c >= 'A' && c <= 'D') ? (byte) (c - 'A') : NO_OPTION;
+    }
+
+    public int size() {
+        return questions.length;
+    }
+
+    /** @return the question's position in the session, or -1 if it is not part of it. */
+    public int positionOf(long questionId) {
+        int i = Arrays.binarySearch(sortedIds, questionId);
+        return i < 0 ? -1 : positions[i];
+    }
+
+    public Question questionAt(int position) {
+        return questions[position];
+    }
+
+    public byte correctAt(int position) {
+        return correct[position];
+    }
+
+    public boolean isCorrect(int position, String selected) {
+        byte expected = correct[position];
+        return expected != NO_OPTION && expected == optionCode(selected);
+    }
+}
@@ -0,0 +1,245 @@
+package com.quiz.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of AI results (generated questions, syllabus
+ * analyses). Entries are keyed by a SHA-256 over everything that shapes the
+ * answer and kept as JSON in a small in-memory LRU backed by a larger LRU
+ * directory on disk, so a repeated generation costs no API quota.
+ */
+@Component
+public class GenerationCache {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GenerationCache.class);
+
+    // Sorted map keys make the key independent of how a client ordered its JSON.
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+
+    @Value("${quiz.ai-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quiz.ai-cache.memory-entries:256}")
+    private int memoryEntries;
+
+    @Value("${quiz.ai-cache.disk-entries:2000}")
+    private int diskEntries;
+
+    @Value("${quiz.ai-cache.dir:data/ai-cache}")
+    private String dir;
+
+    private Map<String, byte[]> memory;
+    // Key -> last use (epoch millis) of every entry on disk.
+    private final Map<String, Long> diskIndex = new ConcurrentHashMap<>();
+    private Path root;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void open() {
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+        if (!enabled)
+            return;
+        try {
+            root = Path.of(dir);
+            Files.createDirectories(root);
+            try (Stream<Path> files = Files.list(root)) {
+                files.filter(p -> p.getFileName().toString().endsWith(".json")).forEach(p -> {
+                    try {
+                        String name = p.getFileName().toString();
+                        diskIndex.put(name.substring(0, name.length() - 5),
+                                Files.getLastModifiedTime(p).toMillis());
+                    } catch (IOException ignored) {
+                    }
+                });
+            }
+        } catch (IOException e) {
+            logger.warn("AI result cache directory {} unavailable, using memory only: {}", dir, e.getMessage());
+            root = null;
+        }
+    }
+
+    /** Builds a key from the parts of a request; nulls are allowed. */
+    public String key(Object... parts) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                byte[] bytes = part instanceof String s ? s.getBytes(StandardCharsets.UTF_8)
+                        : mapper.writeValueAsBytes(part);
+                sha.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                sha.update((byte) ':');
+                sha.update(bytes);
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Collapses whitespace so reformatting the same syllabus still hits. */
+    public static String normalize(String text) {
+        return text == null ? "" : text.strip().replaceAll("\\s+", " ");
+    }
+
+    /** @return a fresh copy of the cached value, or null on a miss. */
+    public <T> T get(String key, TypeReference<T> type) {
+        if (!enabled)
+            return null;
+        byte[] json;
+        synchronized (memory) {
+            json = memory.get(key);
+        }
+        if (json != null) {
+            memoryHits.incrementAndGet();
+        } else if ((json = readDisk(key)) != null) {
+            diskHits.incrementAndGet();
+            synchronized (memory) {
+                memory.put(key, json);
+            }
+        } else {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            return mapper.readValue(json, type);
+        } catch (IOException e) {
+            logger.warn("Dropping unreadable AI cache entry {}: {}", key, e.getMessage());
+            invalidate(key);
+            return null;
+        }
+    }
+
+    public void put(String key, Object value) {
+        if (!enabled)
+            return;
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            logger.warn("Could not cache AI result: {}", e.getMessage());
+            return;
+        }
+        synchronized (memory) {
+            memory.put(key, json);
+        }
+        puts.incrementAndGet();
+        writeDisk(key, json);
+    }
+
+    public void invalidate(String key) {
+        synchronized (memory) {
+            memory.remove(key);
+        }
+        if (root != null && diskIndex.remove(key) != null) {
+            try {
+                Files.deleteIfExists(fileFor(key));
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        int memSize;
+        synchronized (memory) {
+            memSize = memory.size();
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("memoryHits", memoryHits.get());
+        m.put("diskHits", diskHits.get());
+        m.put("misses", misses.get());
+        m.put("hitRate", total == 0 ? 0.0 : Math.round(hits * 1000.0 / total) / 1000.0);
+        m.put("puts", puts.get());
+        m.put("evictions", evictions.get());
+        m.put("memoryEntries", memSize);
+        m.put("diskEntries", diskIndex.size());
+        return m;
+    }
+
+    private byte[] readDisk(String key) {
+        if (root == null || !diskIndex.containsKey(key))
+            return null;
+        Path file = fileFor(key);
+        try {
+            byte[] json = Files.readAllBytes(file);
+            long now = System.currentTimeMillis();
+            diskIndex.put(key, now);
+            // The mtime is the LRU clock that survives a restart.
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            return json;
+        } catch (IOException e) {
+            diskIndex.remove(key);
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, byte[] json) {
+        if (root == null)
+            return;
+        try {
+            Path tmp = Files.createTempFile(root, key, ".tmp");
+            Files.write(tmp, json);
+            Files.move(tmp, fileFor(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            diskIndex.put(key, System.currentTimeMillis());
+        } catch (IOException e) {
+            logger.warn("Could not write AI cache entry to disk: {}", e.getMessage());
+            return;
+        }
+        evictDisk();
+    }
+
+    private synchronized void evictDisk() {
+        while (diskIndex.size() > diskEntries) {
+            String oldest = null;
+            long oldestUse = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> e : diskIndex.entrySet()) {
+                if (e.getValue() < oldestUse) {
+                    oldestUse = e.getValue();
+                    oldest = e.getKey();
+                }
+            }
+            if (oldest == null || diskIndex.remove(oldest) == null)
+                break;
+            try {
+                Files.deleteIfExists(fileFor(oldest));
+            } catch (IOException ignored) {
+            }
+            evictions.incrementAndGet();
+        }
+    }
+
+    private Path fileFor(String key) {
+        return root.resolve(key + ".json");
+    }
+}
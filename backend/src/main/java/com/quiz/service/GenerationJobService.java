@@ -0,0 +1,234 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Question generation as background jobs. Submitting returns a job id right
+ * away; questions collect on the job as the AI produces them and are read by
+ * polling with an offset, so no request thread waits on the provider and a
+ * client that disconnects can pick the job up again. Finished jobs are kept
+ * for {@code quiz.ai.jobs.ttl-minutes}.
+ */
+@Service
+public class GenerationJobService {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GenerationJobService.class);
+
+    public enum State {
+        RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    private final AIService aiService;
+    private final AIRequestExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    // One permit per running job, taken before the job is registered and given
+    // back when it ends, so concurrent submits cannot exceed the limit.
+    private final Semaphore slots;
+    private final int maxActive;
+
+    @Value("${quiz.ai.jobs.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    public GenerationJobService(AIService aiService, AIRequestExecutor executor,
+            @Value("${quiz.ai.jobs.max-active:20}") int maxActive) {
+        this.aiService = aiService;
+        this.executor = executor;
+        this.maxActive = maxActive;
+        this.slots = new Semaphore(maxActive);
+    }
+
+    /** Thrown when too many jobs are already running. */
+    public static class TooManyJobsException extends RuntimeException {
+        public TooManyJobsException(int limit) {
+            super("Too many generation jobs running (limit " + limit + ")");
+        }
+    }
+
+    /** One generation; questions only ever get appended. */
+    private static final class Job implements GenerationListener {
+        final String id = UUID.randomUUID().toString();
+        final int requested;
+        final Instant createdAt = Instant.now();
+        final List<Question> questions = new ArrayList<>();
+        volatile State state = State.RUNNING;
+        volatile boolean cancelRequested;
+        volatile String error;
+        volatile Instant finishedAt;
+
+        Job(int requested) {
+            this.requested = requested;
+        }
+
+        @Override
+        public void onQuestion(Question question) {
+            synchronized (questions) {
+                questions.add(question);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelRequested;
+        }
+    }
+
+    public String submit(String text, String fileData, String mimeType, int count,
+            List<Map<String, Object>> weights) {
+        Job job = register(count);
+        start(job, () -> aiService.generateQuestions(text, fileData, mimeType, count, weights, job), null);
+        return job.id;
+    }
+
+    /** Takes ownership of {@code spool}: it is deleted when the job ends. */
+    public String submitFile(String text, Path spool, String mimeType, int count,
+            List<Map<String, Object>> weights) {
+        Job job;
+        try {
+            job = register(count);
+        } catch (RuntimeException e) {
+            deleteQuietly(spool);
+            throw e;
+        }
+        start(job, () -> {
+            try {
+                return aiService.generateQuestionsFromFile(text, spool, mimeType, count, weights, job);
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }, spool);
+        return job.id;
+    }
+
+    /**
+     * Runs a generation whose questions go straight to the caller (the SSE
+     * endpoint) rather than onto a job. It holds a slot while it runs, so
+     * streams and jobs share the {@code quiz.ai.jobs.max-active} limit.
+     *
+     * @throws TooManyJobsException if every slot is taken.
+     */
+    public CompletableFuture<List<Question>> stream(java.util.function.Supplier<List<Question>> generation) {
+        if (!slots.tryAcquire())
+            throw new TooManyJobsException(maxActive);
+        CompletableFuture<List<Question>> future;
+        try {
+            future = executor.coordinate(generation);
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+        return future.whenComplete((result, err) -> slots.release());
+    }
+
+    /**
+     * Status of a job plus the questions generated after the first {@code since}.
+     *
+     * @return null if there is no such job (or it has expired).
+     */
+    public Map<String, Object> status(String id, int since) {
+        Job job = jobs.get(id);
+        if (job == null)
+            return null;
+        // Read the state first: if it says finished, the list below is complete.
+        State state = job.state;
+        List<Question> page;
+        int total;
+        synchronized (job.questions) {
+            total = job.questions.size();
+            int from = Math.max(0, Math.min(since, total));
+            page = new ArrayList<>(job.questions.subList(from, total));
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", job.id);
+        m.put("state", state);
+        m.put("requested", job.requested);
+        m.put("generated", total);
+        m.put("next", total);
+        m.put("questions", page);
+        if (job.error != null)
+            m.put("error", job.error);
+        m.put("createdAt", job.createdAt.toString());
+        if (job.finishedAt != null)
+            m.put("finishedAt", job.finishedAt.toString());
+        return m;
+    }
+
+    /**
+     * Asks a running job to stop; batches already at the provider finish, the
+     * rest are skipped. Questions generated so far stay readable.
+     *
+     * @return false if there is no such job.
+     */
+    public boolean cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null)
+            return false;
+        job.cancelRequested = true;
+        return true;
+    }
+
+    /** Drops finished jobs older than the TTL. */
+    @Scheduled(fixedDelayString = "${quiz.ai.jobs.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        Instant cutoff = Instant.now().minusSeconds(ttlMinutes * 60);
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(cutoff));
+    }
+
+    private Job register(int count) {
+        if (!slots.tryAcquire())
+            throw new TooManyJobsException(maxActive);
+        Job job = new Job(count);
+        jobs.put(job.id, job);
+        return job;
+    }
+
+    private void start(Job job, java.util.function.Supplier<List<Question>> generation, Path spool) {
+        logger.info("Generation job {} started ({} questions)", job.id, job.requested);
+        CompletableFuture<List<Question>> future;
+        try {
+            future = executor.coordinate(generation);
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            slots.release();
+            if (spool != null)
+                deleteQuietly(spool);
+            throw e;
+        }
+        future.whenComplete((result, err) -> {
+            slots.release();
+            if (spool != null)
+                deleteQuietly(spool);
+            if (err != null) {
+                logger.error("Generation job {} failed", job.id, err);
+                job.error = "generation failed";
+                job.state = State.FAILED;
+            } else {
+                job.state = job.cancelRequested ? State.CANCELLED : State.DONE;
+            }
+            job.finishedAt = Instant.now();
+            logger.info("Generation job {} {} with {} questions", job.id, job.state, job.questions.size());
+        });
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            logger.warn("Could not delete temp file {}: {}", p, e.getMessage());
+        }
+    }
+}
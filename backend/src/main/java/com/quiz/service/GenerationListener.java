@@ -0,0 +1,29 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+
+/**
+ * Receives questions from {@link AIService} as they are generated, and lets
+ * the caller stop a generation early. Called from the batch threads, so
+ * implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface GenerationListener {
+
+    GenerationListener NONE = q -> {
+    };
+
+    void onQuestion(Question question);
+
+    /** Polled between batches and while reading a stream; true stops the generation. */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * A request failed or its stream broke off, so the generation may come up
+     * short. Such a result is not cached.
+     */
+    default void onBatchFailed() {
+    }
+}
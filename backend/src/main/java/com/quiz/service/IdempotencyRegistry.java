@@ -0,0 +1,128 @@
+package com.quiz.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Remembers the responses to requests sent with an idempotency key, so a
+ * client that retries (double click, timeout at the exam deadline) gets the
+ * first answer back instead of having the request run again. Requests racing
+ * with the same key wait for the first one. Only successful responses are
+ * kept, for {@code quiz.idempotency.ttl-minutes}; callers back this with a
+ * unique key column so a retry after eviction or a restart is still caught.
+ */
+@Component
+public class IdempotencyRegistry {
+
+    public static final String HEADER = "Idempotency-Key";
+    /** Set on a response that is a stored answer to an earlier request. */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_.:-]{1,64}");
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${quiz.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    /** Thrown when a key comes back with a different request than it was first used for. */
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException() {
+            super("Idempotency key was already used for a different request");
+        }
+    }
+
+    private record Entry(String fingerprint, CompletableFuture<ResponseEntity<?>> response, Instant createdAt) {
+    }
+
+    /**
+     * The client's key from the {@value #HEADER} header, else from the body
+     * field {@code idempotencyKey}.
+     *
+     * @return null if the client sent none.
+     * @throws IllegalArgumentException if the key is not 1-64 characters of
+     *                                  letters, digits and {@code _.:-}.
+     */
+    public static String keyOf(String header, Object bodyField) {
+        String key = header != null ? header : bodyField != null ? bodyField.toString() : null;
+        if (key == null)
+            return null;
+        if (!VALID_KEY.matcher(key).matches())
+            throw new IllegalArgumentException("Invalid idempotency key");
+        return key;
+    }
+
+    /**
+     * Runs {@code action} once per {@code scope} and {@code key}. A repeat
+     * with the same {@code fingerprint} (what identifies the request, e.g.
+     * session and student) gets the first response back; a repeat while the
+     * first is still running waits for it. Error responses and exceptions are
+     * not kept, so the request can be retried. Without a key the action just
+     * runs.
+     *
+     * @throws KeyReusedException if the key was used with another fingerprint.
+     */
+    public ResponseEntity<?> execute(String scope, String key, String fingerprint,
+            Supplier<ResponseEntity<?>> action) {
+        if (key == null)
+            return action.get();
+
+        String id = scope + ':' + key;
+        Entry mine = new Entry(fingerprint, new CompletableFuture<>(), Instant.now());
+        Entry first = entries.putIfAbsent(id, mine);
+        if (first != null) {
+            if (!first.fingerprint().equals(fingerprint))
+                throw new KeyReusedException();
+            try {
+                return replayed(first.response().join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re)
+                    throw re;
+                throw e;
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error e) {
+            entries.remove(id, mine);
+            mine.response().completeExceptionally(e);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful())
+            entries.remove(id, mine);
+        mine.response().complete(response);
+        return response;
+    }
+
+    /** Marks a response rebuilt from stored state as a replay. */
+    public static ResponseEntity<?> replayed(ResponseEntity<?> original) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(original.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return ResponseEntity.status(original.getStatusCode()).headers(headers).body(original.getBody());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /** Drops finished entries older than the TTL; the database still knows the key. */
+    @Scheduled(fixedDelayString = "${quiz.idempotency.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        Instant cutoff = Instant.now().minusSeconds(ttlMinutes * 60);
+        entries.values().removeIf(e -> e.response().isDone() && e.createdAt().isBefore(cutoff));
+    }
+}
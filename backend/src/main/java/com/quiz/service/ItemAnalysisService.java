@@ -0,0 +1,395 @@
+package com.quiz.service;
+
+import com.quiz.config.ReadReplica;
+import com.quiz.model.Question;
+import com.quiz.repository.QuestionRepository;
+import com.quiz.repository.SessionQuestionRepository;
+import com.quiz.repository.SubmissionRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classical item analysis: per question the p-value (share answering
+ * correctly), the point-biserial discrimination against the rest of the
+ * student's score, and how often each option was chosen; per question set the
+ * KR-20 reliability. A session is analyzed in one pass over its packed
+ * answers into primitive arrays indexed by question position. Results are
+ * cached until the session gets a new submission.
+ * <p>
+ * Across the bank, the same sums are pooled per question over every session
+ * that asked it. Cheating-flagged submissions are left out. Answers are read
+ * from the read replica when there is one.
+ */
+@Service
+public class ItemAnalysisService {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ItemAnalysisService.class);
+
+    // Below this share a distractor is not doing its job.
+    private static final double NON_FUNCTIONING_DISTRACTOR = 0.05;
+
+    private final SubmissionRepository submissionRepo;
+    private final SessionQuestionRepository sessionQuestionRepo;
+    private final QuestionRepository questionRepo;
+    private final SessionService sessionService;
+    private final SubmissionPipeline submissionPipeline;
+    private final ReadReplica readReplica;
+
+    private final Map<Long, SessionItems> sessions = new ConcurrentHashMap<>();
+    private volatile Map<Long, Sums> bank;
+    // Bumped on every submission; a result computed across a bump is not cached.
+    private final AtomicLong version = new AtomicLong();
+
+    public ItemAnalysisService(SubmissionRepository submissionRepo, SessionQuestionRepository sessionQuestionRepo,
+            QuestionRepository questionRepo, SessionService sessionService, SubmissionPipeline submissionPipeline,
+            ReadReplica readReplica) {
+        this.submissionRepo = submissionRepo;
+        this.sessionQuestionRepo = sessionQuestionRepo;
+        this.questionRepo = questionRepo;
+        this.sessionService = sessionService;
+        this.submissionPipeline = submissionPipeline;
+        this.readReplica = readReplica;
+    }
+
+    /**
+     * Per-question sums for one item. Everything else is derived from these,
+     * and they add up across sessions. "Rest" is the student's score without
+     * this question.
+     */
+    private static final class Sums {
+        long shown;
+        long correct;
+        long sumRest;
+        long sumRestSq;
+        long sumRestCorrect;
+        // Choices by packed code: 1..4 = A..D, 5 = skipped
+        final long[] choices = new long[6];
+
+        void add(Sums o) {
+            shown += o.shown;
+            correct += o.correct;
+            sumRest += o.sumRest;
+            sumRestSq += o.sumRestSq;
+            sumRestCorrect += o.sumRestCorrect;
+            for (int i = 0; i < choices.length; i++)
+                choices[i] += o.choices[i];
+        }
+
+        Double pValue() {
+            return shown == 0 ? null : (double) correct / shown;
+        }
+
+        // Point-biserial of correct (0/1) against the rest score.
+        Double discrimination() {
+            if (correct == 0 || correct == shown)
+                return null;
+            double n = shown;
+            double mean = sumRest / n;
+            double variance = sumRestSq / n - mean * mean;
+            if (variance <= 1e-12)
+                return null;
+            double p = correct / n;
+            double meanCorrect = (double) sumRestCorrect / correct;
+            return (meanCorrect - mean) / Math.sqrt(variance) * Math.sqrt(p / (1 - p));
+        }
+    }
+
+    /** One session's analysis, cached. */
+    private static final class SessionItems {
+        final Long sessionId;
+        final AnswerKey key;
+        final Sums[] items;
+        int students;
+        // Per question set: students, sum and sum of squares of their scores
+        final long[] setStudents;
+        final long[] setScoreSum;
+        final long[] setScoreSq;
+        final Instant computedAt = Instant.now();
+
+        SessionItems(Long sessionId, AnswerKey key, int sets) {
+            this.sessionId = sessionId;
+            this.key = key;
+            this.items = new Sums[key.size()];
+            for (int i = 0; i < items.length; i++)
+                items[i] = new Sums();
+            this.setStudents = new long[sets];
+            this.setScoreSum = new long[sets];
+            this.setScoreSq = new long[sets];
+        }
+    }
+
+    /** Called for every accepted submission: the session's analysis is stale. */
+    public void invalidate(Long sessionId) {
+        version.incrementAndGet();
+        sessions.remove(sessionId);
+        bank = null;
+    }
+
+    /**
+     * Item analysis for a session.
+     *
+     * @return null if the session has no linked questions.
+     */
+    public Map<String, Object> analyzeSession(Long sessionId) {
+        SessionItems s = session(sessionId);
+        if (s == null)
+            return null;
+
+        List<Map<String, Object>> items = new ArrayList<>(s.items.length);
+        for (int pos = 0; pos < s.items.length; pos++) {
+            Map<String, Object> m = itemResponse(s.key.questionAt(pos), s.items[pos]);
+            m.put("position", pos);
+            items.add(m);
+        }
+
+        int sets = s.setStudents.length;
+        List<Map<String, Object>> reliability = new ArrayList<>(sets);
+        for (int set = 0; set < sets; set++) {
+            int k = 0;
+            double sumPq = 0;
+            for (int pos = set; pos < s.items.length; pos += sets) {
+                Sums item = s.items[pos];
+                if (item.shown == 0)
+                    continue;
+                double p = (double) item.correct / item.shown;
+                sumPq += p * (1 - p);
+                k++;
+            }
+            long n = s.setStudents[set];
+            Double kr20 = null;
+            if (n >= 2 && k >= 2) {
+                double mean = (double) s.setScoreSum[set] / n;
+                double variance = (double) s.setScoreSq[set] / n - mean * mean;
+                if (variance > 1e-12)
+                    kr20 = (double) k / (k - 1) * (1 - sumPq / variance);
+            }
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("set", "Set " + (char) ('A' + set));
+            r.put("students", n);
+            r.put("items", k);
+            r.put("kr20", round(kr20));
+            reliability.add(r);
+        }
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sessionId", sessionId);
+        m.put("students", s.students);
+        m.put("items", items);
+        m.put("reliability", reliability);
+        m.put("computedAt", s.computedAt.toString());
+        return m;
+    }
+
+    /** Pooled item statistics for every bank question that has been answered. */
+    public List<Map<String, Object>> analyzeBank() {
+        Map<Long, Sums> pooled = bank();
+        Map<Long, Question> questions = new HashMap<>();
+        for (Question q : questionRepo.findAllById(pooled.keySet()))
+            questions.put(q.getId(), q);
+        List<Map<String, Object>> items = new ArrayList<>(pooled.size());
+        pooled.forEach((id, sums) -> {
+            Question q = questions.get(id);
+            if (q != null)
+                items.add(itemResponse(q, sums));
+        });
+        return items;
+    }
+
+    /**
+     * Pooled item statistics for one question across its sessions.
+     *
+     * @return null if there is no such question.
+     */
+    public Map<String, Object> analyzeBankQuestion(Long questionId) {
+        Question q = questionRepo.findById(questionId).orElse(null);
+        if (q == null)
+            return null;
+        Map<Long, Sums> pooled = bank;
+        Sums sums = pooled != null ? pooled.get(questionId) : null;
+        List<Long> sessionIds = sessionQuestionRepo.findSessionIdsByQuestionId(questionId);
+        if (sums == null) {
+            // Only this question's sessions, not the whole bank
+            sums = new Sums();
+            for (Long sessionId : sessionIds) {
+                SessionItems s = session(sessionId);
+                int pos = s == null ? -1 : s.key.positionOf(questionId);
+                if (pos >= 0)
+                    sums.add(s.items[pos]);
+            }
+        }
+        Map<String, Object> m = itemResponse(q, sums);
+        m.put("sessions", sessionIds);
+        return m;
+    }
+
+    private SessionItems session(Long sessionId) {
+        SessionItems cached = sessions.get(sessionId);
+        if (cached != null)
+            return cached;
+
+        long v = version.get();
+        // Accepted submissions still on their way to the DB (or the replica)
+        // would be missed.
+        boolean pending = submissionPipeline.hasPending(sessionId)
+                || readReplica.mayLagBehind(submissionPipeline.lastFlushAt());
+        SessionItems s = compute(sessionId);
+        if (s != null && !pending && version.get() == v)
+            sessions.put(sessionId, s);
+        return s;
+    }
+
+    private Map<Long, Sums> bank() {
+        Map<Long, Sums> cached = bank;
+        if (cached != null)
+            return cached;
+
+        long v = version.get();
+        long start = System.nanoTime();
+        Map<Long, Sums> pooled = new TreeMap<>();
+        // A session too fresh to cache makes the pooled result too fresh as well.
+        boolean settled = true;
+        for (Long sessionId : sessionQuestionRepo.findSessionIds()) {
+            SessionItems s = session(sessionId);
+            if (s == null)
+                continue;
+            settled &= sessions.get(sessionId) == s;
+            for (int pos = 0; pos < s.items.length; pos++)
+                pooled.computeIfAbsent(s.key.questionAt(pos).getId(), k -> new Sums()).add(s.items[pos]);
+        }
+        logger.info("Pooled item analysis for {} questions in {} ms", pooled.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        if (settled && version.get() == v)
+            bank = pooled;
+        return pooled;
+    }
+
+    // The single pass: per student, score their set, then add to each item.
+    private SessionItems compute(Long sessionId) {
+        AnswerKey key = sessionService.getAnswerKey(sessionId);
+        if (key == null)
+            return null;
+        int sets = sessionService.getNumberOfSets(sessionId);
+        long start = System.nanoTime();
+
+        int k = key.size();
+        byte[] correct = new byte[k];
+        for (int pos = 0; pos < k; pos++)
+            correct[pos] = (byte) (key.correctAt(pos) + 1);
+
+        SessionItems s = new SessionItems(sessionId, key, sets);
+        long[] shown = new long[k];
+        long[] right = new long[k];
+        long[] sumRest = new long[k];
+        long[] sumRestSq = new long[k];
+        long[] sumRestCorrect = new long[k];
+        long[] choices = new long[k * 6];
+
+        for (byte[] pack : readReplica.read(() -> submissionRepo.findPackedAnswers(sessionId))) {
+            int n = Math.min(pack.length, k);
+            int score = 0;
+            int first = -1;
+            for (int pos = 0; pos < n; pos++) {
+                byte b = pack[pos];
+                if (b == PackedAnswers.NOT_SHOWN)
+                    continue;
+                if (first < 0)
+                    first = pos;
+                if (b == correct[pos])
+                    score++;
+            }
+            if (first < 0)
+                continue;
+
+            s.students++;
+            int set = first % sets;
+            s.setStudents[set]++;
+            s.setScoreSum[set] += score;
+            s.setScoreSq[set] += (long) score * score;
+
+            for (int pos = first; pos < n; pos++) {
+                byte b = pack[pos];
+                if (b == PackedAnswers.NOT_SHOWN)
+                    continue;
+                boolean ok = b == correct[pos];
+                int rest = ok ? score - 1 : score;
+                shown[pos]++;
+                sumRest[pos] += rest;
+                sumRestSq[pos] += (long) rest * rest;
+                if (ok) {
+                    right[pos]++;
+                    sumRestCorrect[pos] += rest;
+                }
+                if (b > 0 && b < 6)
+                    choices[pos * 6 + b]++;
+            }
+        }
+
+        for (int pos = 0; pos < k; pos++) {
+            Sums item = s.items[pos];
+            item.shown = shown[pos];
+            item.correct = right[pos];
+            item.sumRest = sumRest[pos];
+            item.sumRestSq = sumRestSq[pos];
+            item.sumRestCorrect = sumRestCorrect[pos];
+            System.arraycopy(choices, pos * 6, item.choices, 0, 6);
+        }
+        logger.info("Item analysis for Session={}: {} students, {} questions in {} ms", sessionId, s.students, k,
+                (System.nanoTime() - start) / 1_000_000);
+        return s;
+    }
+
+    private static Map<String, Object> itemResponse(Question q, Sums sums) {
+        Double p = sums.pValue();
+        Double r = sums.discrimination();
+        int key = AnswerKey.optionCode(q.getCorrect()) + 1;
+
+        Map<String, Object> options = new LinkedHashMap<>();
+        List<String> flags = new ArrayList<>();
+        for (int code = 1; code <= 4; code++) {
+            String letter = String.valueOf((char) ('A' + code - 1));
+            long count = sums.choices[code];
+            double share = sums.shown == 0 ? 0 : (double) count / sums.shown;
+            Map<String, Object> o = new LinkedHashMap<>();
+            o.put("count", count);
+            o.put("proportion", round(share));
+            o.put("key", code == key);
+            options.put(letter, o);
+            if (code != key && sums.shown > 0 && share < NON_FUNCTIONING_DISTRACTOR)
+                flags.add("non-functioning distractor " + letter);
+        }
+        if (p != null && p > 0.9)
+            flags.add("too easy");
+        if (p != null && p < 0.2)
+            flags.add("too hard");
+        if (r != null && r < 0)
+            flags.add("negative discrimination");
+        else if (r != null && r < 0.2)
+            flags.add("low discrimination");
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("questionId", q.getId());
+        m.put("text", q.getText());
+        m.put("chapter", q.getChapter());
+        m.put("courseOutcome", q.getCourseOutcome());
+        m.put("correct", q.getCorrect());
+        m.put("responses", sums.shown);
+        m.put("pValue", round(p));
+        m.put("discrimination", round(r));
+        m.put("options", options);
+        m.put("skipped", sums.choices[PackedAnswers.SKIPPED]);
+        m.put("flags", flags);
+        return m;
+    }
+
+    private static Double round(Double d) {
+        return d == null ? null : Math.round(d * 1000.0) / 1000.0;
+    }
+}
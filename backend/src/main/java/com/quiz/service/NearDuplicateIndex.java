@@ -0,0 +1,170 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds near-duplicate questions without comparing every pair. Each question
+ * is reduced to a 128-value MinHash signature over the words of its stem and
+ * the word bigrams of stem plus options; signatures are split into 32 bands of
+ * 4 and only questions that share a band bucket are compared. With these
+ * parameters pairs above ~0.6 Jaccard similarity meet in some bucket more than
+ * 98% of the time, and a candidate counts as a duplicate when its estimated
+ * similarity reaches the threshold.
+ *
+ * @param <T> what to remember for each indexed question (the question itself,
+ *            an id, ...), returned when a later one duplicates it.
+ */
+public final class NearDuplicateIndex<T> {
+
+    private static final int HASHES = 128;
+    private static final int BANDS = 32;
+    private static final int ROWS = HASHES / BANDS;
+
+    // Words that every question stem shares ("which of the following is ...")
+    // would otherwise make unrelated questions look alike.
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "of", "is", "are", "was", "be", "to", "in", "on", "for", "and", "or", "by", "with",
+            "what", "which", "who", "how", "why", "when", "following", "true", "false", "correct", "statement",
+            "does", "do", "it", "this", "that", "these", "as", "at", "from");
+
+    private final double threshold;
+    private final List<long[]> signatures = new ArrayList<>();
+    private final List<T> items = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    private final Map<Long, List<Integer>>[] buckets = new Map[BANDS];
+
+    public NearDuplicateIndex(double threshold) {
+        this.threshold = threshold;
+        for (int b = 0; b < BANDS; b++)
+            buckets[b] = new HashMap<>();
+    }
+
+    /** @return the item of an indexed near-duplicate of {@code q}, or null. */
+    public synchronized T findDuplicate(Question q) {
+        int match = find(signature(q));
+        return match < 0 ? null : items.get(match);
+    }
+
+    /**
+     * Indexes {@code q} unless it near-duplicates something already indexed.
+     *
+     * @return true if it was new and has been added.
+     */
+    public synchronized boolean addIfNew(Question q, T item) {
+        long[] sig = signature(q);
+        if (find(sig) >= 0)
+            return false;
+        add(sig, item);
+        return true;
+    }
+
+    /** Indexes {@code q} even if it duplicates an earlier entry. */
+    public synchronized void add(Question q, T item) {
+        add(signature(q), item);
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    /** Estimated Jaccard similarity of two questions' shingle sets. */
+    public static double similarity(Question a, Question b) {
+        return similarity(signature(a), signature(b));
+    }
+
+    private int find(long[] sig) {
+        Set<Integer> seen = new HashSet<>();
+        for (int b = 0; b < BANDS; b++) {
+            List<Integer> bucket = buckets[b].get(bandKey(sig, b));
+            if (bucket == null)
+                continue;
+            for (int candidate : bucket) {
+                if (seen.add(candidate) && similarity(sig, signatures.get(candidate)) >= threshold)
+                    return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private void add(long[] sig, T item) {
+        int idx = items.size();
+        signatures.add(sig);
+        items.add(item);
+        for (int b = 0; b < BANDS; b++)
+            buckets[b].computeIfAbsent(bandKey(sig, b), k -> new ArrayList<>(1)).add(idx);
+    }
+
+    private static double similarity(long[] a, long[] b) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++)
+            if (a[i] == b[i])
+                same++;
+        return (double) same / HASHES;
+    }
+
+    private static long bandKey(long[] sig, int band) {
+        long h = band;
+        for (int r = 0; r < ROWS; r++)
+            h = mix(h * 31 + sig[band * ROWS + r]);
+        return h;
+    }
+
+    static long[] signature(Question q) {
+        List<String> words = new ArrayList<>();
+        tokenize(q.getText(), words);
+        int stem = words.size();
+        tokenize(q.getOptionA(), words);
+        tokenize(q.getOptionB(), words);
+        tokenize(q.getOptionC(), words);
+        tokenize(q.getOptionD(), words);
+
+        long[] sig = new long[HASHES];
+        java.util.Arrays.fill(sig, Long.MAX_VALUE);
+        // Words of the stem alone tolerate rewording; bigrams over stem and
+        // options keep questions that merely share a set of options apart.
+        for (int i = 0; i < stem; i++)
+            minInto(sig, hash(words.get(i)));
+        for (int i = 0; i + 1 < words.size(); i++)
+            minInto(sig, hash(words.get(i) + ' ' + words.get(i + 1)));
+        return sig;
+    }
+
+    private static void minInto(long[] sig, long h) {
+        for (int k = 0; k < HASHES; k++) {
+            long v = mix(h + k * 0x9E3779B97F4A7C15L);
+            if (v < sig[k])
+                sig[k] = v;
+        }
+    }
+
+    private static void tokenize(String s, List<String> out) {
+        if (s == null)
+            return;
+        for (String w : s.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}_+#*/=<>-]+")) {
+            if (!w.isEmpty() && !STOP_WORDS.contains(w))
+                out.add(w);
+        }
+    }
+
+    private static long hash(String s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++)
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        return mix(h);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
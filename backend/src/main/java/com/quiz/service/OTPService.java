@@ -9,14 +9,44 @@ import java.security.SecureRandom;
 public class OTPService {
     private final SecureRandom rnd = new SecureRandom();
     private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
-    private final com.quiz.repository.OtpRepository otpRepo;
+    private final OtpAttemptLimiter attemptLimiter;
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OTPService.class);
 
+    /** An OTP whose code has been checked against its BCrypt hash at least once. */
+    private static final class VerifiedOtp {
+        // The hash it was verified against; a regenerated OTP invalidates the entry.
+        final String codeHash;
+        final byte[] mac;
+        final java.time.Instant expiry;
+
+        VerifiedOtp(String codeHash, byte[] mac, java.time.Instant expiry) {
+            this.codeHash = codeHash;
+            this.mac = mac;
+            this.expiry = expiry;
+        }
+    }
+
+    // OTP id -> HMAC of its verified code. The HMAC key is random per process,
+    // so nothing here is useful outside this JVM.
+    private final java.util.Map<Long, VerifiedOtp> verified = new java.util.concurrent.ConcurrentHashMap<>();
+    private final java.util.Map<String, java.util.concurrent.CompletableFuture<Boolean>> inFlight = new java.util.concurrent.ConcurrentHashMap<>();
+    private final byte[] hmacKey = new byte[32];
+    private final ThreadLocal<javax.crypto.Mac> hmacs = ThreadLocal.withInitial(() -> {
+        try {
+            javax.crypto.Mac mac = javax.crypto.Mac.getInstance("HmacSHA256");
+            mac.init(new javax.crypto.spec.SecretKeySpec(hmacKey, "HmacSHA256"));
+            return mac;
+        } catch (java.security.GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    });
+
     public OTPService(org.springframework.security.crypto.password.PasswordEncoder passwordEncoder,
-            com.quiz.repository.OtpRepository otpRepo) {
+            OtpAttemptLimiter attemptLimiter) {
         this.passwordEncoder = passwordEncoder;
-        this.otpRepo = otpRepo;
+        this.attemptLimiter = attemptLimiter;
+        rnd.nextBytes(hmacKey);
     }
 
     public static class OtpResult {
@@ -45,12 +75,25 @@ public class OTPService {
     }
 
     public boolean validateOtp(com.quiz.model.Session session, String inputCode) {
+        return validateOtp(session, inputCode, null);
+    }
+
+    /**
+     * @param clientIp caller's address for per-client limits, or null if unknown.
+     */
+    public boolean validateOtp(com.quiz.model.Session session, String inputCode, String clientIp) {
         if (session == null || session.getOtpDetails() == null)
             return false;
 
         com.quiz.model.Otp otp = session.getOtpDetails();
 
-        if (otp.isBlocked()) {
+        if (attemptLimiter.isIpLimited(clientIp)) {
+            log.warn("OTP validation failed: Too many failed attempts from {}. SessionID={}", clientIp,
+                    session.getId());
+            return false;
+        }
+
+        if (attemptLimiter.isBlocked(otp)) {
             log.warn("OTP validation failed: Blocked due to too many attempts. SessionID={}", session.getId());
             return false;
         }
@@ -60,12 +103,11 @@ public class OTPService {
             return false;
         }
 
-        boolean match = passwordEncoder.matches(inputCode, otp.getCodeHash());
+        boolean match = matches(otp, inputCode);
 
         if (!match) {
-            otp.incrementAttempts();
-            otpRepo.save(otp);
-            log.warn("OTP validation failed: Invalid code. Attempts={}. SessionID={}", otp.getAttempts(),
+            int attempts = attemptLimiter.recordFailure(otp, clientIp);
+            log.warn("OTP validation failed: Invalid code. Attempts={}. SessionID={}", attempts,
                     session.getId());
             return false;
         }
@@ -73,6 +115,52 @@ public class OTPService {
         return true;
     }
 
+    // Once one caller has proved the code against the BCrypt hash, everyone
+    // else is checked against an HMAC of that code instead: same answer, a
+    // few microseconds instead of ~100ms. A wrong code is still a wrong code
+    // and still counts as an attempt.
+    private boolean matches(com.quiz.model.Otp otp, String inputCode) {
+        if (inputCode == null || otp.getId() == null)
+            return inputCode != null && passwordEncoder.matches(inputCode, otp.getCodeHash());
+
+        byte[] mac = hmac(inputCode);
+        VerifiedOtp v = verified.get(otp.getId());
+        if (v != null && v.codeHash.equals(otp.getCodeHash()))
+            return java.security.MessageDigest.isEqual(v.mac, mac);
+
+        // First verification for this OTP: let concurrent callers with the
+        // same code share one BCrypt check rather than all running their own.
+        String flightKey = otp.getId() + ":" + java.util.Base64.getEncoder().encodeToString(mac);
+        java.util.concurrent.CompletableFuture<Boolean> mine = new java.util.concurrent.CompletableFuture<>();
+        java.util.concurrent.CompletableFuture<Boolean> running = inFlight.putIfAbsent(flightKey, mine);
+        if (running != null)
+            return running.join();
+        try {
+            boolean ok = passwordEncoder.matches(inputCode, otp.getCodeHash());
+            if (ok)
+                verified.put(otp.getId(), new VerifiedOtp(otp.getCodeHash(), mac, otp.getExpiryTime()));
+            mine.complete(ok);
+            return ok;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    private byte[] hmac(String code) {
+        javax.crypto.Mac mac = hmacs.get();
+        return mac.doFinal(code.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    /** Drops cached verifications for OTPs past their expiry. */
+    @org.springframework.scheduling.annotation.Scheduled(fixedDelayString = "${quiz.otp.cache-sweep-interval-ms:3600000}")
+    public void evictExpiredVerifications() {
+        java.time.Instant now = java.time.Instant.now();
+        verified.values().removeIf(v -> now.isAfter(v.expiry));
+    }
+
     public void sendOtpTo(String destination, String otp) {
         // placeholder - in production would send SMS/Email
         log.info("[OTP] Sent to {}: {}", destination, otp);
@@ -0,0 +1,157 @@
+package com.quiz.service;
+
+import com.quiz.model.Otp;
+import com.quiz.repository.OtpRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory brute-force accounting for OTP guesses.
+ * Failed guesses are counted per OTP (the session's code) with an atomic
+ * counter and per client IP in a sliding window. The OTP row is only written
+ * when it becomes blocked or on the periodic flush, so a flood of bad guesses
+ * no longer turns into one database write each.
+ */
+@Component
+public class OtpAttemptLimiter {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OtpAttemptLimiter.class);
+
+    private final OtpRepository otpRepo;
+
+    @Value("${quiz.otp.ip-max-failures:20}")
+    private int ipMaxFailures;
+
+    @Value("${quiz.otp.ip-window-seconds:600}")
+    private long ipWindowSeconds;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, IpWindow> ipWindows = new ConcurrentHashMap<>();
+
+    public OtpAttemptLimiter(OtpRepository otpRepo) {
+        this.otpRepo = otpRepo;
+    }
+
+    /** Failures for one OTP, seeded from the persisted count. */
+    private static final class Counter {
+        final AtomicInteger failures;
+        volatile int persisted;
+        volatile long lastFailure = System.currentTimeMillis();
+
+        Counter(int stored) {
+            this.failures = new AtomicInteger(stored);
+            this.persisted = stored;
+        }
+    }
+
+    /** Timestamps of recent failures from one IP, oldest first, in a ring. */
+    private static final class IpWindow {
+        private final long[] stamps;
+        private int head;
+        private int size;
+
+        IpWindow(int capacity) {
+            this.stamps = new long[Math.max(1, capacity)];
+        }
+
+        synchronized void add(long now, long windowNanos) {
+            expire(now, windowNanos);
+            if (size == stamps.length) {
+                // Full: the oldest entry is dropped, the window stays saturated.
+                head = (head + 1) % stamps.length;
+                size--;
+            }
+            stamps[(head + size) % stamps.length] = now;
+            size++;
+        }
+
+        synchronized int count(long now, long windowNanos) {
+            expire(now, windowNanos);
+            return size;
+        }
+
+        private void expire(long now, long windowNanos) {
+            while (size > 0 && now - stamps[head] > windowNanos) {
+                head = (head + 1) % stamps.length;
+                size--;
+            }
+        }
+    }
+
+    public boolean isBlocked(Otp otp) {
+        if (otp.isBlocked())
+            return true;
+        Counter c = otp.getId() == null ? null : counters.get(otp.getId());
+        return c != null && c.failures.get() >= Otp.MAX_ATTEMPTS;
+    }
+
+    /** @return true if this client has used up its failed guesses for the current window. */
+    public boolean isIpLimited(String clientIp) {
+        if (clientIp == null)
+            return false;
+        IpWindow w = ipWindows.get(clientIp);
+        return w != null && w.count(System.nanoTime(), windowNanos()) >= ipMaxFailures;
+    }
+
+    /**
+     * Counts a failed guess against the OTP and the client.
+     *
+     * @return the OTP's failure count including this one.
+     */
+    public int recordFailure(Otp otp, String clientIp) {
+        if (clientIp != null)
+            ipWindows.computeIfAbsent(clientIp, k -> new IpWindow(ipMaxFailures))
+                    .add(System.nanoTime(), windowNanos());
+
+        if (otp.getId() == null) {
+            otp.incrementAttempts();
+            return otp.getAttempts();
+        }
+        Counter c = counters.computeIfAbsent(otp.getId(), id -> new Counter(otp.getAttempts()));
+        int n = c.failures.incrementAndGet();
+        c.lastFailure = System.currentTimeMillis();
+        // Exactly one caller sees the threshold crossed; it persists the block.
+        if (n == Otp.MAX_ATTEMPTS)
+            persist(otp.getId(), c);
+        return n;
+    }
+
+    /** Writes counts that changed since the last flush and forgets idle state. */
+    @Scheduled(fixedDelayString = "${quiz.otp.attempts-flush-interval-ms:10000}")
+    public void flush() {
+        long idleCutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        counters.forEach((id, c) -> {
+            if (c.failures.get() > c.persisted)
+                persist(id, c);
+            else if (c.lastFailure < idleCutoff)
+                counters.remove(id, c);
+        });
+        long now = System.nanoTime();
+        ipWindows.entrySet().removeIf(e -> e.getValue().count(now, windowNanos()) == 0);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void persist(Long otpId, Counter c) {
+        int n = c.failures.get();
+        try {
+            otpRepo.raiseAttempts(otpId, n);
+            c.persisted = Math.max(c.persisted, n);
+        } catch (Exception e) {
+            log.warn("Failed to persist OTP attempts for OtpID={}: {}", otpId, e.getMessage());
+        }
+    }
+
+    private long windowNanos() {
+        return TimeUnit.SECONDS.toNanos(ipWindowSeconds);
+    }
+}
@@ -0,0 +1,109 @@
+package com.quiz.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact storage for a submission's answers: one byte per question position
+ * of the session's {@link AnswerKey}. {@code 0} means the question was not
+ * part of the submission, {@code 1..4} are options A..D and {@link #SKIPPED}
+ * marks a question that was shown but left blank (or answered with garbage).
+ */
+public final class PackedAnswers {
+
+    public static final byte NOT_SHOWN = 0;
+    public static final byte SKIPPED = 5;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private PackedAnswers() {
+    }
+
+    /**
+     * Packs the submitted {@code [{questionId, selectedOption}]} list against
+     * the key. Answers to questions outside the key are dropped.
+     */
+    public static byte[] pack(List<Map<String, Object>> answers, AnswerKey key) {
+        byte[] pack = new byte[key.size()];
+        for (Map<String, Object> ans : answers) {
+            Object qId = ans.get("questionId");
+            if (!(qId instanceof Number))
+                continue;
+            int pos = key.positionOf(((Number) qId).longValue());
+            if (pos < 0)
+                continue;
+            Object selected = ans.get("selectedOption");
+            byte option = AnswerKey.optionCode(selected instanceof String ? (String) selected : null);
+            pack[pos] = option == AnswerKey.NO_OPTION ? SKIPPED : (byte) (option + 1);
+        }
+        return pack;
+    }
+
+    /**
+     * The inverse of {@link #pack}: {@code [{questionId, selectedOption}]} for
+     * every shown position, with a null option for a skipped one.
+     */
+    public static List<Map<String, Object>> unpack(byte[] pack, AnswerKey key) {
+        List<Map<String, Object>> answers = new ArrayList<>();
+        for (int pos = 0; pos < Math.min(pack.length, key.size()); pos++) {
+            if (!isShown(pack, pos))
+                continue;
+            Map<String, Object> ans = new java.util.HashMap<>();
+            ans.put("questionId", key.questionAt(pos).getId());
+            ans.put("selectedOption", selectedOption(pack, pos));
+            answers.add(ans);
+        }
+        return answers;
+    }
+
+    /** Packs a legacy {@code details} JSON blob; an unreadable blob packs as empty. */
+    public static byte[] fromDetails(String details, AnswerKey key) {
+        return pack(parseDetails(details), key);
+    }
+
+    /** Parses a legacy {@code details} blob, or returns an empty list if it is missing or unreadable. */
+    public static List<Map<String, Object>> parseDetails(String details) {
+        if (details == null || details.isBlank())
+            return Collections.emptyList();
+        try {
+            return MAPPER.readValue(details, new TypeReference<>() {
+            });
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /** Question ids referenced by a legacy {@code details} blob. */
+    public static List<Long> questionIdsIn(String details) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> ans : parseDetails(details)) {
+            if (ans.get("questionId") instanceof Number n)
+                ids.add(n.longValue());
+        }
+        return ids;
+    }
+
+    public static boolean isShown(byte[] pack, int position) {
+        return position < pack.length && pack[position] != NOT_SHOWN;
+    }
+
+    /** @return "A".."D", or null if the question was skipped or not shown. */
+    public static String selectedOption(byte[] pack, int position) {
+        if (position >= pack.length)
+            return null;
+        byte b = pack[position];
+        return b >= 1 && b <= 4 ? String.valueOf((char) ('A' + b - 1)) : null;
+    }
+
+    public static boolean isCorrect(byte[] pack, int position, AnswerKey key) {
+        if (position >= pack.length)
+            return false;
+        byte b = pack[position];
+        return b >= 1 && b <= 4 && key.correctAt(position) == b - 1;
+    }
+}
@@ -0,0 +1,371 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import com.quiz.repository.QuestionRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The question bank. Each distinct question (by a hash of its normalized
+ * content, see {@link #contentHash}) is stored once and sessions link to it
+ * by id, so reusing a generated set costs no inserts. Bank questions can be
+ * filtered by chapter, course outcome, difficulty and tag in the database,
+ * and searched by words through an in-memory inverted index built at startup.
+ */
+@Service
+public class QuestionBankService {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(QuestionBankService.class);
+
+    private final QuestionRepository questionRepo;
+    private final TextIndex textIndex = new TextIndex();
+    // Serializes writers. A lock, not synchronized, because they wait on the
+    // database and a virtual thread must not do that holding a monitor.
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public QuestionBankService(QuestionRepository questionRepo) {
+        this.questionRepo = questionRepo;
+    }
+
+    @PostConstruct
+    public void loadIndex() {
+        List<Question> bank = questionRepo.findByContentHashIsNotNull();
+        // Rows stored before chapter, course outcome and explanation were
+        // part of the hash would never match again; bring them up to date.
+        List<Question> rehashed = new ArrayList<>();
+        for (Question q : bank) {
+            String hash = contentHash(q);
+            if (!hash.equals(q.getContentHash())) {
+                q.setContentHash(hash);
+                rehashed.add(q);
+            }
+        }
+        if (!rehashed.isEmpty()) {
+            questionRepo.saveAll(rehashed);
+            logger.info("Question bank: updated the content hash of {} questions", rehashed.size());
+        }
+        bank.forEach(textIndex::add);
+        logger.info("Question bank index built: {} questions, {} terms", bank.size(), textIndex.terms());
+    }
+
+    /**
+     * Puts questions into the bank. Questions already there (same content hash)
+     * are not inserted again; tags given here are added to the stored ones and a
+     * missing difficulty is filled in.
+     *
+     * @return the stored question for each input, in input order.
+     */
+    public List<Question> store(List<Question> questions) {
+        writeLock.lock();
+        try {
+            return storeLocked(questions);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private List<Question> storeLocked(List<Question> questions) {
+        Map<String, Question> byHash = new LinkedHashMap<>();
+        List<String> hashes = new ArrayList<>(questions.size());
+        for (Question q : questions) {
+            String hash = contentHash(q);
+            hashes.add(hash);
+            byHash.putIfAbsent(hash, q);
+        }
+
+        Map<String, Question> stored = new HashMap<>();
+        for (Question existing : questionRepo.findByContentHashIn(byHash.keySet()))
+            stored.put(existing.getContentHash(), existing);
+
+        List<Question> toSave = new ArrayList<>();
+        for (Map.Entry<String, Question> e : byHash.entrySet()) {
+            Question incoming = e.getValue();
+            Question existing = stored.get(e.getKey());
+            if (existing == null) {
+                incoming.setId(null);
+                incoming.setContentHash(e.getKey());
+                incoming.setTags(normalizeTags(incoming.getTags()));
+                incoming.setChapter(blankToNull(incoming.getChapter()));
+                incoming.setCourseOutcome(normalizeCourseOutcome(incoming.getCourseOutcome()));
+                incoming.setDifficulty(normalizeDifficulty(incoming.getDifficulty()));
+                toSave.add(incoming);
+            } else if (mergeMeta(existing, incoming)) {
+                toSave.add(existing);
+            }
+        }
+
+        int inserted = 0;
+        for (Question saved : questionRepo.saveAll(toSave)) {
+            if (!stored.containsKey(saved.getContentHash()))
+                inserted++;
+            stored.put(saved.getContentHash(), saved);
+            textIndex.add(saved);
+        }
+        if (!questions.isEmpty())
+            logger.info("Question bank: {} questions stored, {} new", questions.size(), inserted);
+
+        List<Question> result = new ArrayList<>(hashes.size());
+        for (String hash : hashes)
+            result.add(stored.get(hash));
+        return result;
+    }
+
+    /**
+     * Loads bank questions in the order given.
+     *
+     * @throws IllegalArgumentException naming the first id that does not exist.
+     */
+    public List<Question> findAllInOrder(List<Long> ids) {
+        Map<Long, Question> byId = new HashMap<>();
+        for (Question q : questionRepo.findAllById(new LinkedHashSet<>(ids)))
+            byId.put(q.getId(), q);
+        List<Question> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Question q = byId.get(id);
+            if (q == null)
+                throw new IllegalArgumentException("Unknown question id: " + id);
+            result.add(q);
+        }
+        return result;
+    }
+
+    public Question get(Long id) {
+        return questionRepo.findById(id).filter(q -> q.getContentHash() != null).orElse(null);
+    }
+
+    /**
+     * Searches the bank. {@code query} words must all occur in the question
+     * (text, options, explanation, chapter or tags); the last word also matches
+     * as a prefix. Any other null/blank filter is ignored. Newest first.
+     */
+    public Map<String, Object> search(String query, String chapter, String courseOutcome, String difficulty,
+            String tag, int page, int size) {
+        page = Math.max(0, page);
+        size = Math.min(200, Math.max(1, size));
+        chapter = blankToNull(chapter);
+        courseOutcome = normalizeCourseOutcome(courseOutcome);
+        difficulty = normalizeDifficulty(difficulty);
+        tag = blankToNull(tag) == null ? null : Question.TagsConverter.normalize(tag);
+
+        long total;
+        List<Question> questions;
+        if (query == null || query.isBlank()) {
+            Page<Question> p = questionRepo.searchBank(chapter, courseOutcome, difficulty, tag,
+                    PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")));
+            total = p.getTotalElements();
+            questions = p.getContent();
+        } else {
+            Set<Long> ids = textIndex.search(query);
+            List<Question> matches = ids.isEmpty() ? List.of()
+                    : new ArrayList<>(questionRepo.searchBankIn(ids, chapter, courseOutcome, difficulty, tag));
+            matches.sort(Comparator.comparing(Question::getId).reversed());
+            total = matches.size();
+            int from = (int) Math.min(total, (long) page * size);
+            questions = matches.subList(from, (int) Math.min(total, from + (long) size));
+        }
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("total", total);
+        m.put("page", page);
+        m.put("size", size);
+        m.put("questions", questions);
+        return m;
+    }
+
+    /** Question counts per chapter and course outcome. */
+    public List<Map<String, Object>> summary() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Object[] r : questionRepo.countBankByChapterAndCo()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("chapter", r[0]);
+            m.put("courseOutcome", r[1]);
+            m.put("count", r[2]);
+            rows.add(m);
+        }
+        return rows;
+    }
+
+    /**
+     * Replaces a bank question's tags and/or difficulty (null leaves it as is).
+     *
+     * @return the updated question, or null if there is no such bank question.
+     */
+    public Question updateMeta(Long id, List<String> tags, String difficulty) {
+        writeLock.lock();
+        try {
+            Question q = get(id);
+            if (q == null)
+                return null;
+            if (tags != null)
+                q.setTags(normalizeTags(tags));
+            if (difficulty != null)
+                q.setDifficulty(normalizeDifficulty(difficulty));
+            Question saved = questionRepo.save(q);
+            textIndex.add(saved);
+            return saved;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * SHA-256 over the whitespace-normalized text, options, correct key,
+     * explanation, chapter and course outcome. A question edited in any of
+     * those is stored as a new one, so sessions already linked to the old row
+     * keep it as it was. Tags and difficulty are merged into the stored row
+     * instead.
+     */
+    public static String contentHash(Question q) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : new String[] { q.getText(), q.getOptionA(), q.getOptionB(), q.getOptionC(),
+                q.getOptionD(), q.getCorrect(), q.getExplanation(), q.getChapter(),
+                normalizeCourseOutcome(q.getCourseOutcome()) })
+            sb.append(GenerationCache.normalize(part)).append('\u0000');
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return java.util.HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Tags and difficulty supplied again for a stored question add to it.
+    private static boolean mergeMeta(Question existing, Question incoming) {
+        boolean changed = false;
+        List<String> tags = normalizeTags(incoming.getTags());
+        if (!tags.isEmpty()) {
+            Set<String> merged = new LinkedHashSet<>(normalizeTags(existing.getTags()));
+            if (merged.addAll(tags)) {
+                existing.setTags(new ArrayList<>(merged));
+                changed = true;
+            }
+        }
+        if (existing.getDifficulty() == null && blankToNull(incoming.getDifficulty()) != null) {
+            existing.setDifficulty(normalizeDifficulty(incoming.getDifficulty()));
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static List<String> normalizeTags(List<String> tags) {
+        Set<String> out = new LinkedHashSet<>();
+        if (tags != null)
+            for (String t : tags) {
+                String tag = Question.TagsConverter.normalize(t);
+                if (!tag.isEmpty())
+                    out.add(tag);
+            }
+        return new ArrayList<>(out);
+    }
+
+    // Course outcomes and difficulties are stored in one spelling ("CO2",
+    // "Medium") and filters are converted the same way, so the queries compare
+    // the columns as they are and can use their indexes. Chapters are kept as
+    // written and match exactly, like the names in summary().
+    private static String normalizeCourseOutcome(String co) {
+        co = blankToNull(co);
+        return co == null ? null : co.toUpperCase(Locale.ROOT);
+    }
+
+    private static String normalizeDifficulty(String difficulty) {
+        difficulty = blankToNull(difficulty);
+        if (difficulty == null)
+            return null;
+        return difficulty.substring(0, 1).toUpperCase(Locale.ROOT) + difficulty.substring(1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s.trim();
+    }
+
+    /**
+     * Word -> question ids. Sorted so a prefix is a contiguous range. Re-adding
+     * a question first removes its old words.
+     */
+    private static final class TextIndex {
+        private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+        private final Map<Long, Set<String>> wordsById = new HashMap<>();
+
+        synchronized void add(Question q) {
+            remove(q.getId());
+            Set<String> words = new HashSet<>();
+            for (String field : new String[] { q.getText(), q.getOptionA(), q.getOptionB(), q.getOptionC(),
+                    q.getOptionD(), q.getExplanation(), q.getChapter() })
+                tokenize(field, words);
+            if (q.getTags() != null)
+                q.getTags().forEach(t -> tokenize(t, words));
+            for (String w : words)
+                postings.computeIfAbsent(w, k -> new HashSet<>()).add(q.getId());
+            wordsById.put(q.getId(), words);
+        }
+
+        private void remove(Long id) {
+            Set<String> old = wordsById.remove(id);
+            if (old == null)
+                return;
+            for (String w : old) {
+                Set<Long> ids = postings.get(w);
+                if (ids != null && ids.remove(id) && ids.isEmpty())
+                    postings.remove(w);
+            }
+        }
+
+        synchronized Set<Long> search(String query) {
+            List<String> words = new ArrayList<>();
+            for (String w : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                if (!w.isEmpty())
+                    words.add(w);
+            if (words.isEmpty())
+                return Set.of();
+
+            Set<Long> result = null;
+            for (int i = 0; i < words.size(); i++) {
+                String w = words.get(i);
+                Set<Long> hits = new HashSet<>();
+                if (i == words.size() - 1) {
+                    // Still being typed: any word starting with it.
+                    postings.subMap(w, true, w + Character.MAX_VALUE, true).values().forEach(hits::addAll);
+                } else {
+                    hits.addAll(postings.getOrDefault(w, Set.of()));
+                }
+                if (result == null)
+                    result = hits;
+                else
+                    result.retainAll(hits);
+                if (result.isEmpty())
+                    break;
+            }
+            return result;
+        }
+
+        synchronized int terms() {
+            return postings.size();
+        }
+
+        private static void tokenize(String s, Set<String> out) {
+            if (s == null)
+                return;
+            for (String w : s.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                if (!w.isEmpty())
+                    out.add(w);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.quiz.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quiz.model.Question;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Pre-encoded student-facing question JSON for one session.
+ * Each question is serialized once (without {@code correct} or
+ * {@code explanation}) and the set partitions are computed once, so serving a
+ * student is just shuffling an index array and copying bytes.
+ */
+public final class QuestionPayloads {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int sets;
+    // JSON object per question position.
+    private final byte[][] fragments;
+    // Positions belonging to each set: position % sets == setIndex.
+    private final int[][] setPositions;
+    // Unshuffled payload of all questions, for requests without a studentId.
+    private final byte[] all;
+
+    private QuestionPayloads(List<Question> questions, int sets) {
+        int n = questions.size();
+        this.sets = sets;
+        this.fragments = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            fragments[i] = encode(questions.get(i));
+        }
+
+        this.setPositions = new int[sets][];
+        for (int set = 0; set < sets; set++) {
+            int[] positions = new int[(n - set + sets - 1) / sets];
+            for (int i = set, k = 0; i < n; i += sets, k++) {
+                positions[k] = i;
+            }
+            setPositions[set] = positions;
+        }
+
+        int[] identity = new int[n];
+        for (int i = 0; i < n; i++)
+            identity[i] = i;
+        this.all = join(identity);
+    }
+
+    public static QuestionPayloads build(List<Question> questions, int sets) {
+        return new QuestionPayloads(questions, Math.max(1, sets));
+    }
+
+    public int getSets() {
+        return sets;
+    }
+
+    public boolean isEmpty() {
+        return fragments.length == 0;
+    }
+
+    /**
+     * Renders the questions a student should see: their set (by
+     * {@code studentId % sets}) in an order seeded by their id. The order is the
+     * same as {@code Collections.shuffle(list, new Random(studentId))}.
+     */
+    public byte[] render(Long studentId) {
+        if (studentId == null)
+            return all;
+
+        int[] base = sets > 1 ? setPositions[(int) Math.floorMod(studentId, (long) sets)] : setPositions[0];
+        int[] order = base.clone();
+        Random rnd = new Random(studentId);
+        for (int i = order.length; i > 1; i--) {
+            int j = rnd.nextInt(i);
+            int tmp = order[i - 1];
+            order[i - 1] = order[j];
+            order[j] = tmp;
+        }
+        return join(order);
+    }
+
+    private byte[] join(int[] order) {
+        int len = 2 + Math.max(0, order.length - 1);
+        for (int p : order)
+            len += fragments[p].length;
+
+        byte[] out = new byte[len];
+        int off = 0;
+        out[off++] = '[';
+        for (int k = 0; k < order.length; k++) {
+            if (k > 0)
+                out[off++] = ',';
+            byte[] f = fragments[order[k]];
+            System.arraycopy(f, 0, out, off, f.length);
+            off += f.length;
+        }
+        out[off] = ']';
+        return out;
+    }
+
+    // Only the fields a student needs to answer; no answer key material.
+    private static byte[] encode(Question q) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", q.getId());
+        m.put("text", q.getText());
+        m.put("optionA", q.getOptionA());
+        m.put("optionB", q.getOptionB());
+        m.put("optionC", q.getOptionC());
+        m.put("optionD", q.getOptionD());
+        m.put("chapter", q.getChapter());
+        try {
+            return MAPPER.writeValueAsBytes(m);
+        } catch (JsonProcessingException e) {
+            // Plain strings and a Long cannot fail to serialize.
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.quiz.service;
+
+import com.quiz.dto.SubmissionDTOs.ScoreboardRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes scoreboard changes to live viewers over Server-Sent Events.
+ * Each session has its own set of subscribers; every recorded submission is
+ * sent once as a "submission" delta instead of viewers re-polling the whole
+ * scoreboard.
+ */
+@Service
+public class ScoreboardBroadcaster {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ScoreboardBroadcaster.class);
+
+    public static final String SUBMISSION_EVENT = "submission";
+
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    // Fan-out happens off the request thread so a slow viewer never delays a submitter.
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "scoreboard-push");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Clients reconnect automatically (EventSource / our JavaFX client) when this lapses.
+    @Value("${quiz.scoreboard.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    public SseEmitter subscribe(Long sessionId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        List<SseEmitter> list = subscribers.computeIfAbsent(sessionId, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        Runnable remove = () -> list.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /** Queues a scoreboard row for every viewer of the session. */
+    public void publish(Long sessionId, ScoreboardRow row) {
+        List<SseEmitter> list = subscribers.get(sessionId);
+        if (list == null || list.isEmpty())
+            return;
+        sender.execute(() -> send(list, SseEmitter.event().name(SUBMISSION_EVENT).data(row)));
+    }
+
+    // Comments keep idle connections open through proxies and flush out dead ones.
+    @Scheduled(fixedDelayString = "${quiz.scoreboard.heartbeat-ms:20000}")
+    public void heartbeat() {
+        subscribers.values().removeIf(List::isEmpty);
+        subscribers.values().forEach(list -> sender.execute(() -> send(list, SseEmitter.event().comment("ping"))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    private void send(List<SseEmitter> list, SseEmitter.SseEventBuilder event) {
+        for (SseEmitter emitter : list) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping scoreboard subscriber: {}", e.getMessage());
+                list.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
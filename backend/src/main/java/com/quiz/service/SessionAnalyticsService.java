@@ -0,0 +1,306 @@
+package com.quiz.service;
+
+import com.quiz.model.CoTally;
+import com.quiz.model.Question;
+import com.quiz.model.SessionAnalyticsSnapshot;
+import com.quiz.model.Submission;
+import com.quiz.repository.QuestionRepository;
+import com.quiz.repository.SessionAnalyticsSnapshotRepository;
+import com.quiz.repository.SubmissionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running per-session analytics (count, score sum/min/max and per-CO
+ * correct/total). Each submission is folded in once when it is accepted, so
+ * the dashboard is served from memory in O(#COs). Aggregates are periodically
+ * snapshotted to the database and restored from there after a restart.
+ */
+@Service
+public class SessionAnalyticsService {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SessionAnalyticsService.class);
+
+    private final SubmissionRepository submissionRepo;
+    private final QuestionRepository questionRepo;
+    private final SessionAnalyticsSnapshotRepository snapshotRepo;
+    private final SessionService sessionService;
+    private final SubmissionPipeline submissionPipeline;
+
+    private final Map<Long, Aggregate> aggregates = new ConcurrentHashMap<>();
+    // Loads in progress, one per session; see loadShared.
+    private final Map<Long, CompletableFuture<Aggregate>> loading = new ConcurrentHashMap<>();
+
+    @Value("${quiz.analytics.idle-ttl-minutes:60}")
+    private long idleTtlMinutes;
+
+    public SessionAnalyticsService(SubmissionRepository submissionRepo, QuestionRepository questionRepo,
+            SessionAnalyticsSnapshotRepository snapshotRepo, SessionService sessionService,
+            SubmissionPipeline submissionPipeline) {
+        this.submissionRepo = submissionRepo;
+        this.questionRepo = questionRepo;
+        this.snapshotRepo = snapshotRepo;
+        this.sessionService = sessionService;
+        this.submissionPipeline = submissionPipeline;
+    }
+
+    /** Mutable aggregate for one session; all access is synchronized on it. */
+    private static final class Aggregate {
+        long count;
+        long sum;
+        int max = Integer.MIN_VALUE;
+        int min = Integer.MAX_VALUE;
+        // CO -> [correctCount, totalCount], sorted so responses come out ordered.
+        final Map<String, int[]> coStats = new TreeMap<>();
+        boolean dirty;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        synchronized void add(int score, Map<String, int[]> coDelta) {
+            count++;
+            sum += score;
+            max = Math.max(max, score);
+            min = Math.min(min, score);
+            coDelta.forEach((co, d) -> {
+                int[] t = coStats.computeIfAbsent(co, k -> new int[2]);
+                t[0] += d[0];
+                t[1] += d[1];
+            });
+            dirty = true;
+        }
+
+        synchronized Map<String, Object> toResponse() {
+            if (count == 0)
+                return emptyResponse();
+
+            List<Map<String, Object>> coAnalysis = new ArrayList<>(coStats.size());
+            coStats.forEach((co, t) -> {
+                double accuracy = t[1] > 0 ? ((double) t[0] / t[1]) * 100 : 0;
+                // Round to 1 decimal
+                accuracy = Math.round(accuracy * 10.0) / 10.0;
+                coAnalysis.add(Map.of("co", co, "accuracy", accuracy, "correct", t[0], "total", t[1]));
+            });
+            return Map.of(
+                    "totalSubmissions", count,
+                    "averageScore", String.format("%.2f", (double) sum / count),
+                    "highestScore", max,
+                    "lowestScore", min,
+                    "coAnalysis", coAnalysis);
+        }
+
+        // Returns null if nothing changed since the last snapshot.
+        synchronized SessionAnalyticsSnapshot takeSnapshot(Long sessionId) {
+            if (!dirty)
+                return null;
+            SessionAnalyticsSnapshot s = new SessionAnalyticsSnapshot();
+            s.setSessionId(sessionId);
+            s.setSubmissionCount(count);
+            s.setScoreSum(sum);
+            s.setHighestScore(max);
+            s.setLowestScore(min);
+            coStats.forEach((co, t) -> s.getCoTallies().put(co, new CoTally(t[0], t[1])));
+            s.setUpdatedAt(Instant.now());
+            dirty = false;
+            return s;
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized boolean isDirty() {
+            return dirty;
+        }
+
+        static Aggregate fromSnapshot(SessionAnalyticsSnapshot s) {
+            Aggregate a = new Aggregate();
+            a.count = s.getSubmissionCount();
+            a.sum = s.getScoreSum();
+            a.max = s.getHighestScore();
+            a.min = s.getLowestScore();
+            s.getCoTallies().forEach((co, t) -> a.coStats.put(co, new int[] { t.getCorrect(), t.getTotal() }));
+            return a;
+        }
+    }
+
+    public static Map<String, Object> emptyResponse() {
+        return Map.of(
+                "totalSubmissions", 0,
+                "averageScore", 0,
+                "highestScore", 0,
+                "lowestScore", 0,
+                "coAnalysis", Collections.emptyList());
+    }
+
+    /**
+     * Folds a graded submission into its session's aggregate. Call this before
+     * handing the submission to the {@link SubmissionPipeline}: the first call
+     * for a session loads the aggregate from the database, and the submission
+     * must not be there yet or it would be counted twice.
+     */
+    public void record(Submission sub, byte[] pack, AnswerKey key) {
+        Map<String, int[]> coDelta = new HashMap<>();
+        tally(pack, key, coDelta);
+        Long sessionId = sub.getSessionId();
+        while (true) {
+            Aggregate agg = aggregates.get(sessionId);
+            if (agg == null) {
+                agg = loadShared(sessionId);
+                if (agg == null)
+                    return;
+            }
+            agg.add(sub.getScore(), coDelta);
+            agg.lastAccess = System.currentTimeMillis();
+            // Removed meanwhile (invalidated or idle): the submission is not in
+            // the database yet, so whatever replaces it needs it added too.
+            if (aggregates.get(sessionId) == agg)
+                return;
+        }
+    }
+
+    /** Drops a session's aggregate so the next read rebuilds it, e.g. after a failed submit. */
+    public void invalidate(Long sessionId) {
+        aggregates.remove(sessionId);
+    }
+
+    /** Session summary in the shape served by {@code /api/analytics/session/{id}}. */
+    public Map<String, Object> getSessionSummary(Long sessionId) {
+        Aggregate agg = aggregates.get(sessionId);
+        if (agg == null) {
+            agg = loadShared(sessionId);
+            if (agg == null)
+                return load(sessionId).toResponse();
+        }
+        agg.lastAccess = System.currentTimeMillis();
+        return agg.toResponse();
+    }
+
+    /** Writes changed aggregates to their snapshots and drops idle ones from memory. */
+    @Scheduled(fixedDelayString = "${quiz.analytics.snapshot-interval-ms:15000}")
+    public void snapshot() {
+        long idleCutoff = System.currentTimeMillis() - idleTtlMinutes * 60_000L;
+        aggregates.forEach((sessionId, agg) -> {
+            SessionAnalyticsSnapshot s = agg.takeSnapshot(sessionId);
+            if (s != null) {
+                try {
+                    snapshotRepo.save(s);
+                } catch (Exception e) {
+                    agg.markDirty();
+                    logger.warn("Failed to save analytics snapshot for Session={}: {}", sessionId, e.getMessage());
+                    return;
+                }
+            }
+            if (agg.lastAccess < idleCutoff && !agg.isDirty() && !submissionPipeline.hasPending(sessionId))
+                aggregates.remove(sessionId, agg);
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        snapshot();
+    }
+
+    /**
+     * Loads the session's aggregate and installs it. One caller per session
+     * runs the queries, outside the map so other sessions are not held up;
+     * the rest wait for its result.
+     *
+     * @return the installed aggregate, or null while accepted submissions are
+     *         still queued. Those (replayed from the journal, or recorded into
+     *         an aggregate since invalidated) are neither in the database nor
+     *         in a new aggregate, so it stays unloaded until they land.
+     *         Submissions that are only claimed, like the one being recorded,
+     *         do not count.
+     */
+    private Aggregate loadShared(Long sessionId) {
+        CompletableFuture<Aggregate> mine = new CompletableFuture<>();
+        CompletableFuture<Aggregate> running = loading.putIfAbsent(sessionId, mine);
+        if (running != null)
+            return running.join();
+        try {
+            // A load that finished just before we registered has installed it.
+            Aggregate agg = aggregates.get(sessionId);
+            if (agg == null && !submissionPipeline.hasPending(sessionId)) {
+                Aggregate loaded = load(sessionId);
+                if (!submissionPipeline.hasPending(sessionId)) {
+                    Aggregate existing = aggregates.putIfAbsent(sessionId, loaded);
+                    agg = existing != null ? existing : loaded;
+                    logger.debug("Loaded analytics aggregate for Session={}", sessionId);
+                }
+            }
+            mine.complete(agg);
+            return agg;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(sessionId, mine);
+        }
+    }
+
+    // Trust the snapshot only if it covers exactly the submissions on record;
+    // otherwise rebuild from the submissions once.
+    private Aggregate load(Long sessionId) {
+        long stored = submissionRepo.countBySessionId(sessionId);
+        SessionAnalyticsSnapshot snap = snapshotRepo.findById(sessionId).orElse(null);
+        if (snap != null && snap.getSubmissionCount() == stored)
+            return Aggregate.fromSnapshot(snap);
+        if (stored == 0)
+            return new Aggregate();
+        return rebuild(sessionId);
+    }
+
+    private Aggregate rebuild(Long sessionId) {
+        List<Submission> submissions = submissionRepo.findBySessionId(sessionId);
+
+        // Sessions from before question links existed have no key of their
+        // own; their rows only carry the legacy JSON.
+        AnswerKey key = sessionService.getAnswerKey(sessionId);
+        if (key == null) {
+            Set<Long> answeredIds = new LinkedHashSet<>();
+            for (Submission sub : submissions)
+                answeredIds.addAll(PackedAnswers.questionIdsIn(sub.getDetails()));
+            List<Question> questions = questionRepo.findAllById(answeredIds);
+            key = AnswerKey.of(questions);
+        }
+
+        Aggregate agg = new Aggregate();
+        for (Submission sub : submissions) {
+            byte[] pack = sub.getAnswers() != null ? sub.getAnswers()
+                    : PackedAnswers.fromDetails(sub.getDetails(), key);
+            Map<String, int[]> coDelta = new HashMap<>();
+            tally(pack, key, coDelta);
+            agg.add(sub.getScore(), coDelta);
+        }
+        logger.info("Rebuilt analytics for Session={} from {} submissions", sessionId, submissions.size());
+        return agg;
+    }
+
+    // Adds one submission's per-CO [correct, total] counts to coStats.
+    private static void tally(byte[] pack, AnswerKey key, Map<String, int[]> coStats) {
+        int n = Math.min(pack.length, key.size());
+        for (int pos = 0; pos < n; pos++) {
+            if (!PackedAnswers.isShown(pack, pos))
+                continue;
+            String co = key.questionAt(pos).getCourseOutcome();
+            if (co == null || co.isBlank())
+                continue;
+            int[] t = coStats.computeIfAbsent(co, k -> new int[2]);
+            t[1]++; // Total attempts
+            if (PackedAnswers.isCorrect(pack, pos, key))
+                t[0]++; // Correct
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import com.quiz.repository.QuestionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, thread-safe cache of each session's questions and compiled answer
+ * key. The database ({@code session_question} link table) is the source of
+ * truth: a miss after a restart or eviction is reloaded with one query.
+ */
+@Service
+public class SessionQuestionCache {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SessionQuestionCache.class);
+
+    /** Everything we keep in memory for a single session. */
+    public static final class Entry {
+        private final List<Question> questions;
+        private final AnswerKey answerKey;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private volatile long endedAt;
+        private volatile QuestionPayloads payloads;
+        // Session.numberOfSets, remembered on first lookup (0 = not known yet).
+        private volatile int numberOfSets;
+
+        Entry(List<Question> questions) {
+            this.questions = List.copyOf(questions);
+            this.answerKey = AnswerKey.of(this.questions);
+        }
+
+        public List<Question> getQuestions() {
+            return questions;
+        }
+
+        public AnswerKey getAnswerKey() {
+            return answerKey;
+        }
+
+        public int getNumberOfSets() {
+            return numberOfSets;
+        }
+
+        public void setNumberOfSets(int numberOfSets) {
+            this.numberOfSets = numberOfSets;
+        }
+
+        /** Student-facing JSON for the given number of sets, encoded on first use. */
+        public QuestionPayloads getPayloads(int sets) {
+            QuestionPayloads p = payloads;
+            if (p == null || p.getSets() != Math.max(1, sets)) {
+                // Racing builders produce identical results, so last write wins.
+                p = QuestionPayloads.build(questions, sets);
+                payloads = p;
+            }
+            return p;
+        }
+    }
+
+    private final QuestionRepository questionRepo;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    // Reloads in progress. Concurrent joiners wait for the one query instead
+    // of each running it, and it runs outside the entries map's locks.
+    private final Map<Long, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    // Session ids that had no linked questions, until when (epoch millis), so
+    // requests for a wrong id do not each cost a query.
+    private final Map<Long, Long> misses = new ConcurrentHashMap<>();
+
+    @Value("${quiz.session-cache.max-sessions:200}")
+    private int maxSessions;
+
+    // Ended sessions stay around a little longer for late submissions/results.
+    @Value("${quiz.session-cache.ended-ttl-minutes:10}")
+    private long endedTtlMinutes;
+
+    // Sessions nobody has touched for this long are dropped; they reload on demand.
+    @Value("${quiz.session-cache.idle-ttl-minutes:60}")
+    private long idleTtlMinutes;
+
+    @Value("${quiz.session-cache.miss-ttl-ms:5000}")
+    private long missTtlMs;
+
+    public SessionQuestionCache(QuestionRepository questionRepo) {
+        this.questionRepo = questionRepo;
+    }
+
+    public void put(Long sessionId, List<Question> questions) {
+        entries.put(sessionId, new Entry(questions));
+        misses.remove(sessionId);
+        enforceCapacity();
+    }
+
+    /**
+     * @return the cached entry, loading it from the database on a miss, or null
+     *         if the session has no linked questions.
+     */
+    public Entry get(Long sessionId) {
+        if (sessionId == null)
+            return null;
+        Entry e = entries.get(sessionId);
+        if (e == null) {
+            Long until = misses.get(sessionId);
+            if (until != null && until > System.currentTimeMillis())
+                return null;
+            e = loadShared(sessionId);
+            if (e == null)
+                return null;
+        }
+        e.lastAccess = System.currentTimeMillis();
+        return e;
+    }
+
+    /** Schedules the session for eviction once the ended-session TTL has passed. */
+    public void markEnded(Long sessionId) {
+        Entry e = entries.get(sessionId);
+        if (e != null && e.endedAt == 0)
+            e.endedAt = System.currentTimeMillis();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // One caller runs the query; any others that miss meanwhile wait for it.
+    private Entry loadShared(Long sessionId) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = loading.putIfAbsent(sessionId, mine);
+        if (running != null)
+            return running.join();
+        try {
+            // A load that finished just before we registered has installed it.
+            Entry e = entries.get(sessionId);
+            if (e == null) {
+                e = load(sessionId);
+                if (e == null) {
+                    misses.put(sessionId, System.currentTimeMillis() + missTtlMs);
+                } else {
+                    // put() may have installed a fresh entry meanwhile; keep that one.
+                    Entry existing = entries.putIfAbsent(sessionId, e);
+                    if (existing != null)
+                        e = existing;
+                    else
+                        enforceCapacity();
+                }
+            }
+            mine.complete(e);
+            return e;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(sessionId, mine);
+        }
+    }
+
+    private Entry load(Long sessionId) {
+        List<Question> questions = questionRepo.findBySessionIdInOrder(sessionId);
+        if (questions.isEmpty())
+            return null;
+        logger.info("Reloaded {} questions for session {} from the database", questions.size(), sessionId);
+        return new Entry(questions);
+    }
+
+    @Scheduled(fixedDelayString = "${quiz.session-cache.sweep-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        long endedCutoff = now - endedTtlMinutes * 60_000;
+        long idleCutoff = now - idleTtlMinutes * 60_000;
+        misses.values().removeIf(until -> until <= now);
+        entries.entrySet().removeIf(en -> {
+            Entry e = en.getValue();
+            return (e.endedAt != 0 && e.endedAt < endedCutoff) || e.lastAccess < idleCutoff;
+        });
+        enforceCapacity();
+    }
+
+    // Over capacity: drop ended sessions first, then the least recently used.
+    private void enforceCapacity() {
+        int excess = entries.size() - maxSessions;
+        if (excess <= 0)
+            return;
+        entries.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, Entry>>comparingInt(en -> en.getValue().endedAt != 0 ? 0 : 1)
+                        .thenComparingLong(en -> en.getValue().lastAccess))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(entries::remove);
+    }
+}
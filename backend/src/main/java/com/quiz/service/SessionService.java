@@ -2,12 +2,13 @@ package com.quiz.service;
 
 import com.quiz.model.Question;
 import com.quiz.model.Session;
+import com.quiz.model.SessionQuestion;
+import com.quiz.repository.SessionQuestionRepository;
 import com.quiz.repository.SessionRepository;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Manage the lifecycle of quiz sessions. Handles creation, retrieval, and OTP
@@ -17,16 +18,21 @@ import java.util.Map;
 public class SessionService {
     private final SessionRepository sessionRepo;
     private final OTPService otpService;
-    // simple in-memory mapping sessionId -> questions
-    private final Map<Long, List<Question>> sessionQuestions = new HashMap<>();
+    private final SessionQuestionRepository sessionQuestionRepo;
+    // sessionId -> questions + answer key, reloaded from session_question on a miss
+    private final SessionQuestionCache questionCache;
 
-    public SessionService(SessionRepository sessionRepo, OTPService otpService) {
+    public SessionService(SessionRepository sessionRepo, OTPService otpService,
+            SessionQuestionRepository sessionQuestionRepo, SessionQuestionCache questionCache) {
         this.sessionRepo = sessionRepo;
         this.otpService = otpService;
+        this.sessionQuestionRepo = sessionQuestionRepo;
+        this.questionCache = questionCache;
     }
 
     /**
-     * Creates a new session and stores associated questions in memory.
+     * Creates a new session, links its questions in the database and caches
+     * them in memory.
      * 
      * @param title      Quiz title.
      * @param otpDetails Secure OTP Entity.
@@ -39,20 +45,65 @@ public class SessionService {
         s.setOtpDetails(otpDetails);
         s.setActive(true);
         Session saved = sessionRepo.save(s);
-        sessionQuestions.put(saved.getId(), questions);
+
+        List<SessionQuestion> links = new ArrayList<>(questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            links.add(new SessionQuestion(saved.getId(), questions.get(i).getId(), i));
+        }
+        sessionQuestionRepo.saveAll(links);
+        questionCache.put(saved.getId(), questions);
         return saved;
     }
 
     public List<Question> getQuestionsFor(Long sessionId) {
-        return sessionQuestions.getOrDefault(sessionId, List.of());
+        SessionQuestionCache.Entry e = questionCache.get(sessionId);
+        return e == null ? List.of() : e.getQuestions();
+    }
+
+    /**
+     * @return the compiled answer key for the session, or null if the session
+     *         has no linked questions (e.g. it predates the link table).
+     */
+    public AnswerKey getAnswerKey(Long sessionId) {
+        SessionQuestionCache.Entry e = questionCache.get(sessionId);
+        return e == null ? null : e.getAnswerKey();
+    }
+
+    /**
+     * @return pre-encoded question JSON for the session, or null if it has no
+     *         linked questions.
+     */
+    public QuestionPayloads getQuestionPayloads(Long sessionId, int sets) {
+        SessionQuestionCache.Entry e = questionCache.get(sessionId);
+        return e == null ? null : e.getPayloads(sets);
+    }
+
+    /**
+     * Number of question sets for the session, read from the database once and
+     * then remembered alongside its cached questions.
+     */
+    public int getNumberOfSets(Long sessionId) {
+        SessionQuestionCache.Entry e = questionCache.get(sessionId);
+        if (e != null && e.getNumberOfSets() > 0)
+            return e.getNumberOfSets();
+        int sets = sessionRepo.findById(sessionId).map(Session::getNumberOfSets).orElse(1);
+        if (sets < 1)
+            sets = 1;
+        if (e != null)
+            e.setNumberOfSets(sets);
+        return sets;
     }
 
     public boolean validateOtp(Long sessionId, String otp) {
+        return validateOtp(sessionId, otp, null);
+    }
+
+    public boolean validateOtp(Long sessionId, String otp, String clientIp) {
         Session session = sessionRepo.findById(sessionId).orElse(null);
         if (session == null || !session.isActive())
             return false;
 
-        return otpService.validateOtp(session, otp);
+        return otpService.validateOtp(session, otp, clientIp);
     }
 
     public Session getSession(Long sessionId) {
@@ -69,6 +120,7 @@ public class SessionService {
                     if (s.getEndTime() != null && now.isAfter(s.getEndTime())) {
                         s.setActive(false);
                         sessionRepo.save(s);
+                        questionCache.markEnded(s.getId());
                         return false;
                     }
                     return true;
@@ -82,5 +134,6 @@ public class SessionService {
             s.setEndTime(java.time.Instant.now());
             sessionRepo.save(s);
         });
+        questionCache.markEnded(sessionId);
     }
 }
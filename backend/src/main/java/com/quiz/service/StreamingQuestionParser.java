@@ -0,0 +1,186 @@
+package com.quiz.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.quiz.model.Question;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Incremental parser for a model's answer text as it streams in. The text is
+ * expected to hold a JSON array of questions, possibly wrapped in markdown
+ * fences; each question is handed to the sink as soon as its object closes,
+ * using Jackson's non-blocking parser so the whole answer is never buffered.
+ * <p>
+ * If the stream turns out not to be valid JSON, the parser keeps only the text
+ * from the last complete question on and recovers what it can from it with
+ * the same object-by-object regex the blocking path uses.
+ */
+public final class StreamingQuestionParser {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(StreamingQuestionParser.class);
+    private static final Pattern OBJECT = Pattern.compile("\\{[\\s\\S]*?\\}");
+
+    private final ObjectMapper mapper;
+    private final Consumer<Question> sink;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final List<Question> questions = new ArrayList<>();
+
+    private boolean started;
+    private boolean done;
+    private int depth;
+    private TokenBuffer current;
+
+    // Bytes fed since the end of the last complete question, for recovery.
+    private byte[] window = new byte[1024];
+    private int windowLength;
+    private long windowBase;
+    private StringBuilder recovery;
+
+    public StreamingQuestionParser(ObjectMapper mapper, Consumer<Question> sink) {
+        this.mapper = mapper;
+        this.sink = sink;
+        try {
+            this.parser = mapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /** Feeds the next piece of answer text. */
+    public void feed(String text) {
+        if (done || text == null || text.isEmpty())
+            return;
+        if (recovery != null) {
+            recovery.append(text);
+            return;
+        }
+        if (!started) {
+            // Skip anything (e.g. a ```json fence) before the array opens.
+            int open = text.indexOf('[');
+            if (open < 0)
+                return;
+            started = true;
+            text = text.substring(open);
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        remember(bytes);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            startRecovery(e);
+        }
+    }
+
+    /**
+     * Ends the stream. A question cut off by a truncated answer is dropped;
+     * everything before it has already been delivered.
+     *
+     * @return every question delivered to the sink.
+     */
+    public List<Question> finish() {
+        if (recovery != null) {
+            Matcher m = OBJECT.matcher(recovery);
+            int recovered = 0;
+            while (m.find()) {
+                try {
+                    if (emit(mapper.readValue(m.group(), Question.class)))
+                        recovered++;
+                } catch (Exception ignored) {
+                    // Ignore individual malformed objects
+                }
+            }
+            if (recovered > 0)
+                logger.info("Recovered {} questions via regex fallback.", recovered);
+            recovery = null;
+        } else if (started && !done) {
+            feeder.endOfInput();
+            try {
+                drain();
+            } catch (IOException e) {
+                logger.warn("Streamed answer ended mid-question: {}", e.getMessage());
+            }
+        }
+        done = true;
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+        }
+        return questions;
+    }
+
+    public int count() {
+        return questions.size();
+    }
+
+    private void drain() throws IOException {
+        JsonToken t;
+        while (!done && (t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) {
+            if (t == JsonToken.START_OBJECT && depth == 1)
+                current = new TokenBuffer(parser, null);
+            if (current != null)
+                current.copyCurrentEvent(parser);
+
+            if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                depth++;
+            } else if (t == JsonToken.END_OBJECT || t == JsonToken.END_ARRAY) {
+                depth--;
+                if (depth == 1 && current != null) {
+                    TokenBuffer object = current;
+                    current = null;
+                    try (JsonParser p = object.asParser(mapper)) {
+                        emit(mapper.readValue(p, Question.class));
+                    } catch (IOException e) {
+                        logger.debug("Skipping unreadable streamed question: {}", e.getMessage());
+                    }
+                    forgetUpTo(parser.currentLocation().getByteOffset());
+                } else if (depth == 0) {
+                    done = true;
+                }
+            }
+        }
+    }
+
+    private boolean emit(Question q) {
+        if (q == null || q.getText() == null || q.getText().isBlank())
+            return false;
+        questions.add(q);
+        sink.accept(q);
+        return true;
+    }
+
+    private void startRecovery(IOException e) {
+        logger.warn("Streamed answer is not valid JSON, recovering: {}", e.getMessage());
+        recovery = new StringBuilder(new String(window, 0, windowLength, StandardCharsets.UTF_8));
+        current = null;
+    }
+
+    private void remember(byte[] bytes) {
+        if (windowLength + bytes.length > window.length)
+            window = Arrays.copyOf(window, Math.max(window.length * 2, windowLength + bytes.length));
+        System.arraycopy(bytes, 0, window, windowLength, bytes.length);
+        windowLength += bytes.length;
+    }
+
+    // Drops window bytes before the given stream offset.
+    private void forgetUpTo(long offset) {
+        int drop = (int) Math.min(windowLength, Math.max(0, offset - windowBase));
+        if (drop == 0)
+            return;
+        System.arraycopy(window, drop, window, 0, windowLength - drop);
+        windowLength -= drop;
+        windowBase += drop;
+    }
+}
@@ -0,0 +1,217 @@
+package com.quiz.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quiz.model.Submission;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Durable local append log for acknowledged submissions that have not been
+ * written to the database yet. Each line is one submission as JSON; the file
+ * is truncated once the writer has flushed everything it holds.
+ */
+@Component
+public class SubmissionJournal {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SubmissionJournal.class);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Value("${quiz.submissions.journal-path:data/submission-journal.log}")
+    private String journalPath;
+
+    // Every append is fsynced before it is acknowledged (concurrent appends
+    // share one); turning this off trades crash safety for latency.
+    @Value("${quiz.submissions.journal-fsync:true}")
+    private boolean fsync;
+
+    private FileChannel channel;
+    // A lock rather than synchronized: a virtual thread blocked in write/fsync
+    // while holding a monitor would pin its carrier thread (JDK 21).
+    private final ReentrantLock lock = new ReentrantLock();
+    // Entries written but not yet handed to the queue; the journal is not
+    // truncated while there are any.
+    private int appending;
+    // Bytes appended since open (guarded by lock) and how many of them are
+    // known to be on disk (guarded by syncLock). Truncating doesn't reset them.
+    private volatile long written;
+    private long synced;
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path path = Path.of(journalPath);
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (channel != null)
+                channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends the submission, waits until it is on disk, then runs
+     * {@code enqueue}. A failed write leaves nothing queued. Concurrent
+     * appends share one fsync (group commit) instead of queuing for one each.
+     *
+     * @return false if {@code enqueue} rejected the submission. Its entry stays
+     *         in the journal; replay skips rows already in the database, so the
+     *         caller can save it directly.
+     */
+    public boolean appendIf(Submission sub, BooleanSupplier enqueue) throws IOException {
+        byte[] line = (mapper.writeValueAsString(toMap(sub)) + "\n").getBytes(StandardCharsets.UTF_8);
+        long end;
+        lock.lock();
+        try {
+            long start = channel.size();
+            try {
+                ByteBuffer buf = ByteBuffer.wrap(line);
+                while (buf.hasRemaining())
+                    channel.write(buf);
+            } catch (IOException e) {
+                // Don't leave a torn line for the next entry to be appended to.
+                try {
+                    channel.truncate(start);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            appending++;
+            end = written += line.length;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (fsync)
+                syncTo(end);
+        } catch (IOException e) {
+            lock.lock();
+            appending--;
+            lock.unlock();
+            throw e;
+        }
+        lock.lock();
+        try {
+            return enqueue.getAsBoolean();
+        } finally {
+            appending--;
+            lock.unlock();
+        }
+    }
+
+    // Whoever gets syncLock first forces everything written so far; the
+    // appends that were waiting behind it find themselves covered and return.
+    private void syncTo(long end) throws IOException {
+        syncLock.lock();
+        try {
+            if (synced >= end)
+                return;
+            long target = written;
+            channel.force(false);
+            synced = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /** Empties the journal if {@code idle} reports nothing left to flush. */
+    public void truncateIf(BooleanSupplier idle) throws IOException {
+        lock.lock();
+        try {
+            if (channel.size() > 0 && appending == 0 && idle.getAsBoolean()) {
+                channel.truncate(0);
+                if (fsync)
+                    channel.force(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Reads every submission still in the journal, e.g. after a crash. */
+    public List<Submission> readAll() throws IOException {
+        lock.lock();
+        try {
+            return read();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Submission> read() throws IOException {
+        List<Submission> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(journalPath), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                try {
+                    result.add(fromMap(mapper.readValue(line, new TypeReference<Map<String, Object>>() {
+                    })));
+                } catch (Exception e) {
+                    // A torn last line from a crash mid-write is expected; skip it.
+                    logger.warn("Skipping unreadable journal entry: {}", e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Object> toMap(Submission s) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sessionId", s.getSessionId());
+        m.put("studentId", s.getStudentId());
+        m.put("score", s.getScore());
+        m.put("questionSet", s.getQuestionSet());
+        m.put("cheated", s.isCheated());
+        m.put("submittedAt", s.getSubmittedAt().toString());
+        m.put("answers", s.getAnswers()); // base64 in JSON
+        m.put("details", s.getDetails());
+        m.put("idempotencyKey", s.getIdempotencyKey());
+        return m;
+    }
+
+    private Submission fromMap(Map<String, Object> m) {
+        Submission s = new Submission();
+        s.setSessionId(((Number) m.get("sessionId")).longValue());
+        s.setStudentId(((Number) m.get("studentId")).longValue());
+        s.setScore(((Number) m.get("score")).intValue());
+        s.setQuestionSet((String) m.get("questionSet"));
+        s.setCheated(Boolean.TRUE.equals(m.get("cheated")));
+        s.setSubmittedAt(Instant.parse((String) m.get("submittedAt")));
+        if (m.get("answers") instanceof String packed)
+            s.setAnswers(Base64.getDecoder().decode(packed));
+        s.setDetails((String) m.get("details"));
+        s.setIdempotencyKey((String) m.get("idempotencyKey"));
+        return s;
+    }
+}
@@ -0,0 +1,262 @@
+package com.quiz.service;
+
+import com.quiz.model.Submission;
+import com.quiz.repository.SubmissionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind ingestion for graded submissions.
+ * The request thread journals the submission and puts it on a bounded queue;
+ * a single background writer drains the queue and inserts rows in JDBC
+ * batches. When the queue is full we fall back to a synchronous save.
+ * A submission leaves the journal only once it is committed (or rejected as a
+ * duplicate); writes that fail because the database is unavailable are
+ * retried until they succeed.
+ */
+@Service
+public class SubmissionPipeline {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SubmissionPipeline.class);
+
+    private final SubmissionRepository submissionRepo;
+    private final SubmissionJournal journal;
+
+    @Value("${quiz.submissions.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // Keep in step with spring.jpa.properties.hibernate.jdbc.batch_size.
+    @Value("${quiz.submissions.batch-size:50}")
+    private int batchSize;
+
+    // Writes that failed because the database was unavailable are retried
+    // after a backoff that doubles from MIN_RETRY_BACKOFF_MS up to this.
+    @Value("${quiz.submissions.retry-max-backoff-ms:30000}")
+    private long maxRetryBackoffMs;
+    private static final long MIN_RETRY_BACKOFF_MS = 500;
+
+    private BlockingQueue<Submission> queue;
+    // "sessionId:studentId" of submissions not yet in the database, mapped to
+    // CLAIMED while only claimed and to the submission once accepted (queued
+    // or replayed).
+    private final Map<String, Submission> pending = new ConcurrentHashMap<>();
+    private static final Submission CLAIMED = new Submission();
+    private Thread writer;
+    private volatile boolean running;
+    private volatile long lastFlushMillis;
+
+    public SubmissionPipeline(SubmissionRepository submissionRepo, SubmissionJournal journal) {
+        this.submissionRepo = submissionRepo;
+        this.journal = journal;
+    }
+
+    @PostConstruct
+    public void start() throws Exception {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        // Replay before the writer starts so it cannot truncate the journal
+        // while entries are still being re-queued.
+        replayJournal();
+        running = true;
+        writer = new Thread(this::runWriter, "submission-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Reserves the student's one submission for the session before it is
+     * graded. Of two racing submissions only one gets it; submissions already
+     * in the database are kept out by the unique (sessionId, studentId) key.
+     * Follow with {@link #submit} or {@link #release}.
+     *
+     * @return false if a submission from the student is already pending.
+     */
+    public boolean claim(Long sessionId, Long studentId) {
+        return pending.putIfAbsent(key(sessionId, studentId), CLAIMED) == null;
+    }
+
+    /** Gives up a {@link #claim} that will not be submitted. */
+    public void release(Long sessionId, Long studentId) {
+        pending.remove(key(sessionId, studentId));
+    }
+
+    /**
+     * Accepts a graded submission. Once this returns it is either journaled and
+     * queued, or (queue full) already saved.
+     */
+    public void submit(Submission sub) throws Exception {
+        String key = key(sub.getSessionId(), sub.getStudentId());
+        pending.put(key, sub);
+        try {
+            if (!journal.appendIf(sub, () -> queue.offer(sub))) {
+                logger.warn("Submission queue full ({}); saving synchronously", queueCapacity);
+                submissionRepo.save(sub);
+                pending.remove(key);
+            }
+        } catch (Exception e) {
+            pending.remove(key);
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if any submission for the session was accepted (submitted,
+     *         or replayed from the journal) but is not flushed yet. Claims that
+     *         have not been submitted do not count.
+     */
+    public boolean hasPending(Long sessionId) {
+        String prefix = sessionId + ":";
+        return pending.entrySet().stream().anyMatch(e -> e.getValue() != CLAIMED && e.getKey().startsWith(prefix));
+    }
+
+    /**
+     * The session's accepted submissions that are not in the database yet.
+     * A row is removed from here only after it is committed, so reading this
+     * before querying the database misses none.
+     */
+    public List<Submission> pendingFor(Long sessionId) {
+        String prefix = sessionId + ":";
+        return pending.entrySet().stream()
+                .filter(e -> e.getValue() != CLAIMED && e.getKey().startsWith(prefix))
+                .map(Map.Entry::getValue)
+                .toList();
+    }
+
+    /** When the writer last inserted a batch (epoch millis), 0 if never. */
+    public long lastFlushAt() {
+        return lastFlushMillis;
+    }
+
+    public int backlog() {
+        return queue.size();
+    }
+
+    private void runWriter() {
+        List<Submission> batch = new ArrayList<>(batchSize);
+        // Rows that could not be written for a reason other than a constraint
+        // violation (database down, lost connection, lock timeout). They stay
+        // pending and journaled and go first in the next batch, after a backoff.
+        List<Submission> retry = new ArrayList<>();
+        long backoffMillis = 0;
+        while (running || !queue.isEmpty() || !retry.isEmpty()) {
+            try {
+                if (backoffMillis > 0)
+                    Thread.sleep(backoffMillis);
+                batch.addAll(retry);
+                retry.clear();
+                if (batch.isEmpty()) {
+                    Submission first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first != null)
+                        batch.add(first);
+                }
+                if (!batch.isEmpty()) {
+                    queue.drainTo(batch, Math.max(0, batchSize - batch.size()));
+                    flush(batch, retry);
+                    batch.clear();
+                }
+                backoffMillis = retry.isEmpty() ? 0
+                        : Math.min(Math.max(2 * backoffMillis, MIN_RETRY_BACKOFF_MS), maxRetryBackoffMs);
+                // Only this thread consumes the queue, so an empty queue and
+                // nothing to retry means everything journaled so far is in the
+                // database.
+                journal.truncateIf(() -> queue.isEmpty() && retry.isEmpty());
+                if (!running && !retry.isEmpty()) {
+                    // Shutting down with the database unavailable: the journal
+                    // still has these and they are replayed on the next start.
+                    logger.warn("Stopping with {} submissions not yet saved; they stay in the journal",
+                            retry.size() + queue.size());
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // Shutdown: loop once more to drain whatever is left.
+                running = false;
+                backoffMillis = 0;
+            } catch (Exception e) {
+                logger.error("Submission writer error", e);
+            }
+        }
+    }
+
+    /**
+     * Inserts {@code batch}. Rows rejected by a constraint (a duplicate that
+     * got past the claim) are dropped; rows that failed for any other reason
+     * are added to {@code retry}. Everything else is committed.
+     */
+    private void flush(List<Submission> batch, List<Submission> retry) {
+        try {
+            submissionRepo.saveAll(batch);
+        } catch (Exception e) {
+            // One bad row should not sink the batch; retry individually.
+            logger.warn("Batch insert of {} submissions failed ({}); retrying one by one", batch.size(),
+                    e.getMessage());
+            for (Submission s : batch) {
+                // Ids handed out by the failed batch were never committed.
+                s.setId(null);
+                if (!retry.isEmpty()) {
+                    // The database is already failing; don't wait out a
+                    // timeout for every remaining row.
+                    retry.add(s);
+                    continue;
+                }
+                try {
+                    submissionRepo.save(s);
+                } catch (org.springframework.dao.DataIntegrityViolationException ex) {
+                    logger.warn("Dropping duplicate submission Session={}, Student={}", s.getSessionId(),
+                            s.getStudentId());
+                } catch (Exception ex) {
+                    logger.error("Saving submission Session={}, Student={} failed, will retry: {}",
+                            s.getSessionId(), s.getStudentId(), ex.getMessage());
+                    retry.add(s);
+                }
+            }
+        }
+        // Before clearing pending: readers that see it gone also see the new time.
+        lastFlushMillis = System.currentTimeMillis();
+        for (Submission s : batch) {
+            if (!retry.contains(s))
+                pending.remove(key(s.getSessionId(), s.getStudentId()));
+        }
+        if (retry.isEmpty())
+            logger.debug("Flushed {} submissions", batch.size());
+        else
+            logger.warn("Flushed {} of {} submissions; {} waiting to be retried", batch.size() - retry.size(),
+                    batch.size(), retry.size());
+    }
+
+    // Re-queue anything acknowledged before a crash that never reached the DB.
+    private void replayJournal() throws Exception {
+        List<Submission> entries = journal.readAll();
+        int replayed = 0;
+        for (Submission s : entries) {
+            if (submissionRepo.existsByStudentIdAndSessionId(s.getStudentId(), s.getSessionId()))
+                continue;
+            if (queue.offer(s)) {
+                pending.put(key(s.getSessionId(), s.getStudentId()), s);
+            } else {
+                submissionRepo.save(s);
+            }
+            replayed++;
+        }
+        if (!entries.isEmpty())
+            logger.info("Replayed {} of {} journaled submissions", replayed, entries.size());
+    }
+
+    private static String key(Long sessionId, Long studentId) {
+        return sessionId + ":" + studentId;
+    }
+}
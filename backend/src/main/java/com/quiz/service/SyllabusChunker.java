@@ -0,0 +1,361 @@
+package com.quiz.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits syllabus text into prompt-sized chunks along its own structure:
+ * a unit/chapter heading starts a new chunk, paragraphs are never cut unless a
+ * single one is too large (then sentences, then words). Chunks are sized by an
+ * estimated token count, and a chunk that had to be cut for size repeats the
+ * tail of the previous one so no topic loses its context.
+ */
+public final class SyllabusChunker {
+
+    // "Unit 1", "UNIT-II:", "Chapter 3 -", "Module IV", "## Part 2"
+    private static final Pattern HEADING = Pattern.compile(
+            "^\\s*(?:#{1,6}\\s*)?(unit|chapter|module|part|section|lecture|week)\\s*[-:.]?\\s*([0-9]+|[ivxlc]+)\\b.*",
+            Pattern.CASE_INSENSITIVE);
+    // "Chapter 1: Intro" in the analysis output -> ordinal 1
+    private static final Pattern ORDINAL = Pattern.compile(
+            "(?:unit|chapter|module|part|section|lecture|week)\\s*[-:.]?\\s*([0-9]+|[ivxlc]+)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?;])\\s+|\\n");
+
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    public SyllabusChunker(int maxTokens, int overlapTokens) {
+        this.maxTokens = Math.max(64, maxTokens);
+        this.overlapTokens = Math.max(0, Math.min(overlapTokens, this.maxTokens / 4));
+    }
+
+    /** One piece of syllabus text and the headings whose content it holds. */
+    public static final class Chunk {
+        private final String text;
+        // Heading -> tokens of this chunk that belong under it
+        private final Map<String, Integer> headingTokens;
+        private final int tokens;
+
+        Chunk(String text, Map<String, Integer> headingTokens, int tokens) {
+            this.text = text;
+            this.headingTokens = headingTokens;
+            this.tokens = tokens;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /** Headings opened in this chunk, preceded by the one it continues, if any. */
+        public List<String> getHeadings() {
+            return new ArrayList<>(headingTokens.keySet());
+        }
+
+        public int getTokens() {
+            return tokens;
+        }
+    }
+
+    /**
+     * Rough token estimate: about four characters per token for English
+     * prose, which is what the Gemini and GLM tokenizers average.
+     */
+    public static int estimateTokens(CharSequence text) {
+        return (text.length() + 3) / 4;
+    }
+
+    /** Single pass over the text; never returns an empty list for non-blank input. */
+    public List<Chunk> chunk(String text) {
+        List<Chunk> chunks = new ArrayList<>();
+        if (text == null || text.isBlank())
+            return chunks;
+
+        Builder current = new Builder(null);
+        StringBuilder paragraph = new StringBuilder();
+        int pos = 0;
+        int len = text.length();
+        while (pos <= len) {
+            int eol = text.indexOf('\n', pos);
+            if (eol < 0)
+                eol = len;
+            String line = text.substring(pos, eol).stripTrailing();
+            pos = eol + 1;
+
+            if (line.isBlank()) {
+                current = addParagraph(chunks, current, paragraph);
+            } else if (HEADING.matcher(line).matches()) {
+                current = addParagraph(chunks, current, paragraph);
+                // A new topic: close the chunk unless it is still mostly empty,
+                // so a run of short units does not cost one request each.
+                if (current.tokens >= maxTokens / 4) {
+                    chunks.add(current.build());
+                    current = new Builder(null);
+                }
+                paragraph.append(line.strip());
+                current.lastHeading = line.strip();
+                current = addParagraph(chunks, current, paragraph);
+            } else {
+                if (paragraph.length() > 0)
+                    paragraph.append('\n');
+                paragraph.append(line.strip());
+            }
+        }
+        current = addParagraph(chunks, current, paragraph);
+        if (current.tokens > 0)
+            chunks.add(current.build());
+        return chunks;
+    }
+
+    /**
+     * Splits {@code count} questions across chunks. With chapter weights (as
+     * returned by {@code analyzeSyllabus}), each chapter's share goes to the
+     * chunks that cover it, in proportion to their size; chapters no chunk
+     * heading matches are spread over the chunks without a matched heading.
+     * Without usable weights, quotas follow chunk size. Quotas always sum to
+     * {@code count}.
+     */
+    public static int[] allocate(List<Chunk> chunks, int count, List<Map<String, Object>> weights) {
+        int n = chunks.size();
+        double[] share = new double[n];
+        boolean weighted = false;
+
+        if (weights != null && !weights.isEmpty()) {
+            double unmatchedWeight = 0;
+            boolean[] matched = new boolean[n];
+            int[] covered = new int[n];
+            for (Map<String, Object> w : weights) {
+                double weight = weightOf(w);
+                if (weight <= 0)
+                    continue;
+                int coveringTokens = 0;
+                for (int i = 0; i < n; i++) {
+                    covered[i] = coveredTokens(chunks.get(i), w);
+                    coveringTokens += covered[i];
+                }
+                if (coveringTokens == 0) {
+                    unmatchedWeight += weight;
+                    continue;
+                }
+                weighted = true;
+                for (int i = 0; i < n; i++) {
+                    if (covered[i] > 0) {
+                        share[i] += weight * covered[i] / coveringTokens;
+                        matched[i] = true;
+                    }
+                }
+            }
+            if (weighted && unmatchedWeight > 0) {
+                int freeTokens = 0;
+                for (int i = 0; i < n; i++)
+                    if (!matched[i])
+                        freeTokens += chunks.get(i).tokens;
+                for (int i = 0; i < n; i++) {
+                    if (freeTokens > 0 && !matched[i])
+                        share[i] += unmatchedWeight * chunks.get(i).tokens / freeTokens;
+                    else if (freeTokens == 0)
+                        share[i] += unmatchedWeight / n;
+                }
+            }
+        }
+        if (!weighted) {
+            for (int i = 0; i < n; i++)
+                share[i] = chunks.get(i).tokens;
+        }
+        return largestRemainder(share, count);
+    }
+
+    /** The weight entries whose chapter this chunk covers, or all of them if none match. */
+    public static List<Map<String, Object>> weightsFor(Chunk chunk, List<Map<String, Object>> weights) {
+        if (weights == null)
+            return null;
+        List<Map<String, Object>> own = new ArrayList<>();
+        for (Map<String, Object> w : weights)
+            if (coveredTokens(chunk, w) > 0)
+                own.add(w);
+        return own.isEmpty() ? weights : own;
+    }
+
+    private Builder addParagraph(List<Chunk> chunks, Builder current, StringBuilder paragraph) {
+        if (paragraph.length() == 0)
+            return current;
+        String p = paragraph.toString();
+        paragraph.setLength(0);
+        if (estimateTokens(p) <= maxTokens)
+            return addUnit(chunks, current, p);
+        for (String sentence : SENTENCE_END.split(p)) {
+            if (sentence.isBlank())
+                continue;
+            if (estimateTokens(sentence) <= maxTokens) {
+                current = addUnit(chunks, current, sentence);
+                continue;
+            }
+            // No usable boundary at all: cut on whitespace.
+            int maxChars = maxTokens * 4;
+            int from = 0;
+            while (from < sentence.length()) {
+                int to = Math.min(sentence.length(), from + maxChars);
+                if (to < sentence.length()) {
+                    int space = sentence.lastIndexOf(' ', to);
+                    if (space > from)
+                        to = space;
+                }
+                current = addUnit(chunks, current, sentence.substring(from, to).strip());
+                from = to;
+            }
+        }
+        return current;
+    }
+
+    private Builder addUnit(List<Chunk> chunks, Builder current, String unit) {
+        int tokens = estimateTokens(unit) + 1;
+        if (current.tokens + tokens > maxTokens && current.tokens > 0) {
+            chunks.add(current.build());
+            Builder next = new Builder(current.lastHeading);
+            // Carry the tail of the full chunk over so the cut is not blind.
+            Deque<String> carry = new ArrayDeque<>();
+            int carried = 0;
+            for (int i = current.units.size() - 1; i >= 0; i--) {
+                String u = current.units.get(i);
+                int t = estimateTokens(u) + 1;
+                if (carried + t > overlapTokens || carried + t + tokens > maxTokens)
+                    break;
+                carry.addFirst(u);
+                carried += t;
+            }
+            for (String u : carry)
+                next.add(u, estimateTokens(u) + 1);
+            current = next;
+        }
+        current.add(unit, tokens);
+        return current;
+    }
+
+    private static final class Builder {
+        final List<String> units = new ArrayList<>();
+        final Map<String, Integer> headingTokens = new LinkedHashMap<>();
+        String lastHeading;
+        int tokens;
+
+        Builder(String continuedHeading) {
+            this.lastHeading = continuedHeading;
+        }
+
+        void add(String unit, int unitTokens) {
+            units.add(unit);
+            tokens += unitTokens;
+            if (lastHeading != null)
+                headingTokens.merge(lastHeading, unitTokens, Integer::sum);
+        }
+
+        Chunk build() {
+            return new Chunk(String.join("\n\n", units), headingTokens, tokens);
+        }
+    }
+
+    private static double weightOf(Map<String, Object> w) {
+        Object v = w.get("weight");
+        if (v instanceof Number num)
+            return num.doubleValue();
+        if (v instanceof String s) {
+            try {
+                return Double.parseDouble(s.replace("%", "").strip());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return 0;
+    }
+
+    // Tokens of the chunk under headings that match the chapter: same ordinal
+    // ("Unit II" ~ "Chapter 2"), or either title contains the other.
+    private static int coveredTokens(Chunk chunk, Map<String, Object> w) {
+        Object name = w.get("name");
+        if (!(name instanceof String chapter) || chapter.isBlank())
+            return 0;
+        int ordinal = ordinalOf(chapter);
+        String title = titleOf(chapter);
+        int covered = 0;
+        for (Map.Entry<String, Integer> e : chunk.headingTokens.entrySet()) {
+            String heading = e.getKey();
+            int h = ordinalOf(heading);
+            boolean match;
+            if (ordinal > 0 && h > 0) {
+                match = ordinal == h;
+            } else {
+                String ht = titleOf(heading);
+                match = !title.isEmpty() && !ht.isEmpty() && (ht.contains(title) || title.contains(ht));
+            }
+            if (match)
+                covered += e.getValue();
+        }
+        return covered;
+    }
+
+    private static int ordinalOf(String s) {
+        Matcher m = ORDINAL.matcher(s);
+        if (!m.find())
+            return 0;
+        String v = m.group(1).toLowerCase(Locale.ROOT);
+        if (Character.isDigit(v.charAt(0)))
+            return Integer.parseInt(v);
+        int total = 0;
+        int prev = 0;
+        for (int i = v.length() - 1; i >= 0; i--) {
+            int d = switch (v.charAt(i)) {
+                case 'i' -> 1;
+                case 'v' -> 5;
+                case 'x' -> 10;
+                case 'l' -> 50;
+                default -> 100;
+            };
+            total += d < prev ? -d : d;
+            prev = Math.max(prev, d);
+        }
+        return total;
+    }
+
+    private static String titleOf(String s) {
+        String t = ORDINAL.matcher(s).replaceFirst("");
+        return t.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", " ").strip();
+    }
+
+    private static int[] largestRemainder(double[] share, int count) {
+        int n = share.length;
+        int[] quota = new int[n];
+        double total = 0;
+        for (double s : share)
+            total += s;
+        if (n == 0 || count <= 0)
+            return quota;
+        if (total <= 0) {
+            for (int i = 0; i < n; i++)
+                quota[i] = count / n + (i < count % n ? 1 : 0);
+            return quota;
+        }
+        int assigned = 0;
+        double[] rest = new double[n];
+        for (int i = 0; i < n; i++) {
+            double exact = share[i] / total * count;
+            quota[i] = (int) Math.floor(exact);
+            rest[i] = exact - quota[i];
+            assigned += quota[i];
+        }
+        while (assigned < count) {
+            int best = 0;
+            for (int i = 1; i < n; i++)
+                if (rest[i] > rest[best])
+                    best = i;
+            quota[best]++;
+            rest[best] = -1;
+            assigned++;
+        }
+        return quota;
+    }
+}
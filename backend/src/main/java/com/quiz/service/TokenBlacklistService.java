@@ -1,41 +1,181 @@
 package com.quiz.service;
 
+import com.quiz.config.JwtUtils;
+import com.quiz.model.RevokedToken;
+import com.quiz.repository.RevokedTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import jakarta.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Service to manage blacklisted JWT tokens.
- * In a production environment, this should ideally use Redis or a database
- * with a TTL (Time To Live) equal to the JWT expiration.
- * For this implementation, we use an in-memory Set.
+ * Revoked tokens are kept until their own {@code exp}, keyed by signature,
+ * and persisted so a logout survives a restart. A Bloom filter in front of
+ * the map answers the common "not revoked" case without locking and without
+ * hashing the whole token; a background sweep drops expired entries.
  */
 @Service
 public class TokenBlacklistService {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TokenBlacklistService.class);
 
-    // Thread-safe set to store blacklisted tokens
-    private final Set<String> blacklistedTokens = Collections.synchronizedSet(new HashSet<>());
+    private final JwtUtils jwtUtils;
+    private final RevokedTokenRepository revokedRepo;
+
+    // Token signature -> expiry (epoch millis).
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloom;
+
+    @Value("${jwt.blacklist.bloom-bits:1048576}")
+    private int bloomBits;
+
+    public TokenBlacklistService(JwtUtils jwtUtils, RevokedTokenRepository revokedRepo) {
+        this.jwtUtils = jwtUtils;
+        this.revokedRepo = revokedRepo;
+    }
+
+    /** Lock-free Bloom filter over token signatures. */
+    private static final class BloomFilter {
+        private static final int HASHES = 4;
+        private final AtomicLongArray words;
+        private final int bits;
+
+        BloomFilter(int bits) {
+            this.bits = Math.max(64, bits);
+            this.words = new AtomicLongArray((this.bits + 63) / 64);
+        }
+
+        void add(String signature) {
+            add(signature, 0);
+        }
+
+        // Indexes from the characters of s starting at offset, so callers can
+        // probe with the whole token and skip the substring.
+        void add(String s, int offset) {
+            long h1 = prefixHash(s, offset);
+            long h2 = prefixHash(s, offset + 11) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (int) Long.remainderUnsigned(h1 + i * h2, bits);
+                long mask = 1L << (bit & 63);
+                words.getAndAccumulate(bit >>> 6, mask, (w, m) -> w | m);
+            }
+        }
+
+        boolean mightContain(String s, int offset) {
+            long h1 = prefixHash(s, offset);
+            long h2 = prefixHash(s, offset + 11) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (int) Long.remainderUnsigned(h1 + i * h2, bits);
+                if ((words.get(bit >>> 6) & (1L << (bit & 63))) == 0)
+                    return false;
+            }
+            return true;
+        }
+
+        // The signature is an HMAC, so a few of its characters are already
+        // uniformly distributed; mixing 11 of them is enough for a Bloom index.
+        private static long prefixHash(String s, int from) {
+            long h = 0x9E3779B97F4A7C15L;
+            int end = Math.min(s.length(), from + 11);
+            for (int i = from; i < end; i++)
+                h = (h ^ s.charAt(i)) * 0x100000001B3L;
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        bloom = new BloomFilter(bloomBits);
+        for (RevokedToken t : revokedRepo.findByExpiresAtAfter(Instant.now())) {
+            revoked.put(t.getSignature(), t.getExpiresAt().toEpochMilli());
+            bloom.add(t.getSignature());
+        }
+        if (!revoked.isEmpty())
+            logger.info("Loaded {} revoked tokens", revoked.size());
+    }
 
     /**
-     * Adds a token to the blacklist.
-     * 
+     * Adds a token to the blacklist until it expires.
+     * Tokens we did not sign, or that have already expired, are rejected by
+     * JWT verification anyway and are not stored.
+     *
      * @param token The JWT token to invalidate.
      */
     public void blacklistToken(String token) {
-        if (token != null && !token.isBlank()) {
-            blacklistedTokens.add(token);
+        if (token == null || token.isBlank())
+            return;
+        Date exp = jwtUtils.extractExpirationIfSigned(token);
+        if (exp == null || exp.getTime() <= System.currentTimeMillis())
+            return;
+
+        String signature = signatureOf(token);
+        revoked.put(signature, exp.getTime());
+        bloom.add(signature);
+        try {
+            revokedRepo.save(new RevokedToken(signature, exp.toInstant()));
+        } catch (Exception e) {
+            // Still revoked for the life of this process.
+            logger.error("Failed to persist revoked token: {}", e.getMessage());
         }
     }
 
     /**
      * Checks if a token is blacklisted.
-     * 
+     *
      * @param token The JWT token to check.
      * @return true if the token is blacklisted, false otherwise.
      */
     public boolean isBlacklisted(String token) {
-        return blacklistedTokens.contains(token);
+        if (token == null)
+            return false;
+        int start = signatureStart(token);
+        if (!bloom.mightContain(token, start))
+            return false;
+        return revoked.containsKey(token.substring(start));
+    }
+
+    /** Drops entries for tokens that have expired, in memory and in the database. */
+    @Scheduled(fixedDelayString = "${jwt.blacklist.sweep-interval-ms:600000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(exp -> exp <= now);
+        if (revoked.size() < before) {
+            // Bloom filters cannot forget, so rebuild one from what is left.
+            // Re-adding after the swap catches tokens revoked meanwhile.
+            BloomFilter fresh = new BloomFilter(bloomBits);
+            revoked.keySet().forEach(fresh::add);
+            bloom = fresh;
+            revoked.keySet().forEach(fresh::add);
+        }
+        try {
+            revokedRepo.deleteExpired(Instant.ofEpochMilli(now));
+        } catch (Exception e) {
+            logger.warn("Failed to purge expired revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    // The part after the last '.' is the token's HMAC: unique per token and
+    // useless on its own, so it is a safe key to store.
+    private static String signatureOf(String token) {
+        return token.substring(signatureStart(token));
+    }
+
+    private static int signatureStart(String token) {
+        int dot = token.lastIndexOf('.');
+        return dot >= 0 && dot < token.length() - 1 ? dot + 1 : 0;
     }
 }
@@ -0,0 +1,79 @@
+package com.quiz.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+
+/**
+ * Reads an underlying stream as standard Base64 text, a buffer at a time,
+ * so large files can be sent inside a JSON body without holding the whole
+ * encoded copy in memory.
+ */
+public class Base64EncodingInputStream extends InputStream {
+
+    // Multiple of 3 so every chunk but the last encodes without padding.
+    private static final int RAW_CHUNK = 3 * 4096;
+
+    private final InputStream in;
+    private final Base64.Encoder encoder = Base64.getEncoder();
+    private final byte[] raw = new byte[RAW_CHUNK];
+    private byte[] encoded = new byte[0];
+    private int pos;
+    private boolean eof;
+
+    public Base64EncodingInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    /** Length of the Base64 text for {@code rawLength} input bytes, padding included. */
+    public static long encodedLength(long rawLength) {
+        return 4 * ((rawLength + 2) / 3);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill())
+            return -1;
+        return encoded[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!fill())
+            return -1;
+        int n = Math.min(len, encoded.length - pos);
+        System.arraycopy(encoded, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return encoded.length - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Returns false once the input is exhausted and everything has been read.
+    private boolean fill() throws IOException {
+        if (pos < encoded.length)
+            return true;
+        if (eof)
+            return false;
+        // readNBytes blocks until the chunk is full or the input ends, which
+        // keeps chunks aligned to 3 bytes.
+        int n = in.readNBytes(raw, 0, raw.length);
+        if (n < raw.length)
+            eof = true;
+        if (n == 0)
+            return false;
+        encoded = encoder.encode(n == raw.length ? raw : java.util.Arrays.copyOf(raw, n));
+        pos = 0;
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+-- Schema as of the introduction of migrations: what Hibernate's ddl-auto
+-- created from the entities. Later entity changes need a V<n>__*.sql here;
+-- the "server" profile only validates the mapping against it.
+
+create sequence submission_seq start with 1 increment by 50;
+
+create table users (
+    id bigserial not null,
+    username varchar(255) not null,
+    password varchar(255) not null,
+    role varchar(255) not null check (role in ('ADMIN', 'FACULTY', 'STUDENT')),
+    primary key (id),
+    constraint uk_users_username unique (username)
+);
+
+create table faculty (
+    id bigserial not null,
+    username varchar(255),
+    password_hash varchar(255),
+    display_name varchar(255),
+    primary key (id)
+);
+
+create table otps (
+    id bigserial not null,
+    code varchar(255),
+    code_hash varchar(255) not null,
+    expiry_time timestamp(6) with time zone not null,
+    attempts integer not null,
+    primary key (id)
+);
+
+create table session (
+    id bigserial not null,
+    title varchar(255),
+    active boolean not null,
+    number_of_sets integer not null,
+    otp_id bigint,
+    created_at timestamp(6) with time zone,
+    start_time timestamp(6) with time zone,
+    end_time timestamp(6) with time zone,
+    primary key (id),
+    constraint uk_session_otp unique (otp_id),
+    constraint fk_session_otp foreign key (otp_id) references otps
+);
+
+create table question (
+    id bigserial not null,
+    text text,
+    optiona varchar(2048),
+    optionb varchar(2048),
+    optionc varchar(2048),
+    optiond varchar(2048),
+    correct varchar(255),
+    explanation text,
+    chapter varchar(255),
+    course_outcome varchar(255),
+    difficulty varchar(255),
+    tags varchar(1024),
+    content_hash varchar(64),
+    primary key (id),
+    constraint uk_question_content_hash unique (content_hash)
+);
+
+create index idx_question_chapter on question (chapter);
+create index idx_question_course_outcome on question (course_outcome);
+
+create table session_question (
+    id bigserial not null,
+    session_id bigint,
+    question_id bigint,
+    position integer not null,
+    primary key (id)
+);
+
+create index idx_session_question_session on session_question (session_id, position);
+
+create table student (
+    id bigserial not null,
+    name varchar(255),
+    enrollment varchar(255),
+    session_id bigint,
+    idempotency_key varchar(64),
+    primary key (id),
+    constraint uk_student_session_enrollment unique (session_id, enrollment),
+    constraint uk_student_idempotency_key unique (idempotency_key)
+);
+
+create table submission (
+    id bigint not null,
+    session_id bigint,
+    student_id bigint,
+    score integer not null,
+    question_set varchar(255),
+    cheated boolean not null,
+    submitted_at timestamp(6) with time zone,
+    answers bytea,
+    details text,
+    idempotency_key varchar(64),
+    primary key (id),
+    constraint uk_submission_session_student unique (session_id, student_id),
+    constraint uk_submission_idempotency_key unique (idempotency_key)
+);
+
+create table answer (
+    id bigserial not null,
+    student_id bigint,
+    question_id bigint,
+    selected_option varchar(255),
+    correct boolean not null,
+    primary key (id)
+);
+
+create table syllabus (
+    id bigserial not null,
+    text text,
+    primary key (id)
+);
+
+create table session_analytics (
+    session_id bigint not null,
+    submission_count bigint not null,
+    score_sum bigint not null,
+    highest_score integer not null,
+    lowest_score integer not null,
+    updated_at timestamp(6) with time zone,
+    primary key (session_id)
+);
+
+create table session_analytics_co (
+    session_id bigint not null,
+    co varchar(255) not null,
+    correct integer,
+    total integer,
+    primary key (session_id, co),
+    constraint fk_session_analytics_co_session foreign key (session_id) references session_analytics
+);
+
+create table revoked_token (
+    signature varchar(128) not null,
+    expires_at timestamp(6) with time zone not null,
+    primary key (signature)
+);
+
+create index idx_revoked_token_expires on revoked_token (expires_at);
@@ -0,0 +1,10 @@
+-- The bank's filters now compare chapter, course_outcome and difficulty as
+-- stored, so the indexes on them can be used. Bring rows written before
+-- that into the spelling new rows get: chapters trimmed, course outcomes
+-- upper-case ("CO2"), difficulties capitalized ("Medium").
+
+update question
+set chapter = nullif(trim(chapter), ''),
+    course_outcome = nullif(upper(trim(course_outcome)), ''),
+    difficulty = nullif(upper(substr(trim(difficulty), 1, 1)) || lower(substr(trim(difficulty), 2)), '')
+where content_hash is not null;
@@ -1,9 +1,14 @@
 package com.quizclient;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.FileNotFoundException;
 import java.net.http.*;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
 
 public class ApiClient {
     // If your backend is not on localhost:8080, change this.
@@ -16,6 +21,39 @@ public class ApiClient {
 
     public static final ObjectMapper MAPPER = new ObjectMapper();
 
+    /**
+     * Builds a multipart/form-data POST with some text fields and one file.
+     * The file is streamed from disk rather than read into memory.
+     */
+    public static HttpRequest.Builder multipartRequest(String path, Map<String, String> fields, String fileField,
+            Path file, String fileType) throws FileNotFoundException {
+        String boundary = "----quiz" + UUID.randomUUID().toString().replace("-", "");
+        StringBuilder head = new StringBuilder();
+        fields.forEach((name, value) -> {
+            if (value != null) {
+                head.append("--").append(boundary).append("\r\n")
+                        .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n")
+                        .append("Content-Type: text/plain; charset=UTF-8\r\n\r\n")
+                        .append(value).append("\r\n");
+            }
+        });
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(fileField)
+                .append("\"; filename=\"").append(file.getFileName().toString().replace("\"", "%22")).append("\"\r\n")
+                .append("Content-Type: ").append(fileType != null ? fileType : "application/octet-stream")
+                .append("\r\n\r\n");
+        String tail = "\r\n--" + boundary + "--\r\n";
+
+        return HttpRequest.newBuilder()
+                .uri(URI.create(BASE_URL + path))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .timeout(Duration.ofSeconds(20))
+                .POST(HttpRequest.BodyPublishers.concat(
+                        HttpRequest.BodyPublishers.ofString(head.toString(), StandardCharsets.UTF_8),
+                        HttpRequest.BodyPublishers.ofFile(file),
+                        HttpRequest.BodyPublishers.ofString(tail)));
+    }
+
     public static HttpRequest.Builder jsonRequest(String path) {
         return HttpRequest.newBuilder()
                 .uri(URI.create(BASE_URL + path))
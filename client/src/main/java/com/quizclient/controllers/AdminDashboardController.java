@@ -60,19 +60,33 @@ public class AdminDashboardController {
         onRefreshArchives();
     }
 
+    // The backend pages the archive; this is where the next page starts (null = no more).
+    private Long nextAfterId;
+
     // This refreshes the list of quiz submissions from the backend.
     @FXML
     public void onRefreshArchives() {
+        loadArchivePage(0, false);
+    }
+
+    @FXML
+    public void onLoadMoreArchives() {
+        if (nextAfterId != null)
+            loadArchivePage(nextAfterId, true);
+    }
+
+    private void loadArchivePage(long afterId, boolean append) {
         try {
-            // Need to add this endpoint to backend
-            var req = ApiClient.jsonRequest("/api/admin/submissions").GET().build();
+            var req = ApiClient.jsonRequest("/api/admin/submissions?afterId=" + afterId).GET().build();
             var resp = ApiClient.HTTP.send(req, HttpResponse.BodyHandlers.ofString());
 
             if (resp.statusCode() == 200) {
                 List<Map<String, Object>> data = ApiClient.MAPPER.readValue(resp.body(), new TypeReference<>() {
                 });
-                archiveTable.getItems().clear();
+                if (!append)
+                    archiveTable.getItems().clear();
                 archiveTable.getItems().addAll(data);
+                nextAfterId = resp.headers().firstValue("X-Next-After-Id").map(Long::valueOf).orElse(null);
             } else {
                 System.err.println("Failed to load archives: " + resp.statusCode());
             }
@@ -30,7 +30,7 @@ public class FacultyDashboardController {
     @FXML
     public Label fileDetailsLabel;
 
-    private String selectedFileBase64;
+    private File selectedFile;
     private String selectedMimeType;
 
     private final HttpClient http = ApiClient.HTTP;
@@ -143,73 +143,85 @@ public class FacultyDashboardController {
 
         setLoadingState(true);
 
-        // We run the generation in a background thread so the app doesn't freeze while
-        // waiting for the AI.
+        // The server runs the generation as a job; we submit it once and then poll
+        // for new questions on a background thread so the app doesn't freeze.
         int totalCount = countSpinner.getValue();
-        final int BATCH_SIZE = 10; // Request in chunks of 10 to avoid timeouts and improve UX
 
         generationTask = new javafx.concurrent.Task<>() {
+            private String jobId;
+
             @Override
             protected List<QuestionDTO> call() throws Exception {
                 List<QuestionDTO> allQuestions = new ArrayList<>();
-                int remaining = totalCount;
-
-                while (remaining > 0) {
-                    // Check cancellation
-                    if (isCancelled())
-                        break;
 
-                    int currentBatch = Math.min(BATCH_SIZE, remaining);
+                Map<String, String> bodyMap = new HashMap<>();
+                bodyMap.put("text", text);
+                bodyMap.put("count", String.valueOf(totalCount));
+
+                // If we have a selected file, upload it as multipart (streamed from disk)
+                HttpRequest.Builder builder;
+                if (selectedFile != null) {
+                    bodyMap.put("mimeType", selectedMimeType);
+                    builder = ApiClient.multipartRequest("/api/syllabus/jobs/upload", bodyMap, "file",
+                            selectedFile.toPath(), selectedMimeType)
+                            .timeout(java.time.Duration.ofSeconds(120)); // Upload time only
+                } else {
+                    builder = ApiClient.jsonRequest("/api/syllabus/jobs")
+                            .POST(HttpRequest.BodyPublishers.ofString(ApiClient.MAPPER.writeValueAsString(bodyMap)));
+                }
 
-                    try {
-                        // Create request to backend
-                        Map<String, String> bodyMap = new HashMap<>();
-                        bodyMap.put("text", text);
-                        bodyMap.put("count", String.valueOf(currentBatch));
-
-                        // If we have a selected file, send it too
-                        if (selectedFileBase64 != null) {
-                            bodyMap.put("fileData", selectedFileBase64);
-                            bodyMap.put("mimeType", selectedMimeType);
-                        }
+                var submitted = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+                if (submitted.statusCode() != 202)
+                    throw new RuntimeException("Could not start generation: " + submitted.body());
+                jobId = ApiClient.MAPPER.readTree(submitted.body()).get("id").asText();
 
-                        var req = ApiClient.jsonRequest("/api/syllabus/generate")
-                                .POST(HttpRequest.BodyPublishers
-                                        .ofString(ApiClient.MAPPER.writeValueAsString(bodyMap)))
-                                .timeout(java.time.Duration.ofSeconds(120)) // Extended timeout per batch
-                                .build();
+                int next = 0;
+                try {
+                    while (!isCancelled()) {
+                        Thread.sleep(1000);
 
-                        // Synch send (blocking within this background thread)
+                        var req = ApiClient.jsonRequest("/api/syllabus/jobs/" + jobId + "?since=" + next)
+                                .GET().build();
                         var resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-
-                        if (isCancelled())
+                        if (resp.statusCode() != 200) {
+                            System.err.println("Job status error: " + resp.body());
                             break;
+                        }
 
-                        if (resp.statusCode() == 200) {
-                            List<QuestionDTO> batch = ApiClient.MAPPER.readValue(resp.body(),
-                                    new TypeReference<List<QuestionDTO>>() {
-                                    });
-                            if (batch != null && !batch.isEmpty()) {
-                                allQuestions.addAll(batch);
-
-                                // Update UI Immediately on JavaFX Application Thread
-                                javafx.application.Platform.runLater(() -> {
-                                    questionsList.getItems().addAll(batch);
-                                    questionsList.scrollTo(questionsList.getItems().size() - 1);
+                        JsonNode status = ApiClient.MAPPER.readTree(resp.body());
+                        List<QuestionDTO> batch = ApiClient.MAPPER.convertValue(status.get("questions"),
+                                new TypeReference<List<QuestionDTO>>() {
                                 });
-                            }
-                        } else {
-                            System.err.println("Batch error: " + resp.body());
-                            // Continues to try next batch even if one fails
+                        next = status.get("next").asInt();
+                        if (!batch.isEmpty()) {
+                            allQuestions.addAll(batch);
+
+                            // Update UI Immediately on JavaFX Application Thread
+                            javafx.application.Platform.runLater(() -> {
+                                questionsList.getItems().addAll(batch);
+                                questionsList.scrollTo(questionsList.getItems().size() - 1);
+                            });
                         }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+                        updateMessage(next + " / " + totalCount);
 
-                    remaining -= currentBatch;
+                        if (!"RUNNING".equals(status.get("state").asText()))
+                            break;
+                    }
+                } catch (InterruptedException e) {
+                    // Cancelled while waiting between polls
                 }
+                if (isCancelled())
+                    cancelJob();
                 return allQuestions;
             }
+
+            // Tell the server to stop; nothing to wait for.
+            private void cancelJob() {
+                if (jobId != null) {
+                    http.sendAsync(ApiClient.jsonRequest("/api/syllabus/jobs/" + jobId).DELETE().build(),
+                            HttpResponse.BodyHandlers.discarding());
+                }
+            }
         };
 
         // ... existing handlers ...
@@ -231,7 +243,9 @@ public class FacultyDashboardController {
 
         generationTask.setOnCancelled(e -> setLoadingState(false));
 
-        new Thread(generationTask).start();
+        Thread poller = new Thread(generationTask, "generation-poller");
+        poller.setDaemon(true);
+        poller.start();
     }
 
     // If the faculty member wants to stop the generation mid-way, they can click
@@ -399,13 +413,15 @@ public class FacultyDashboardController {
                     getClass().getResource("/fxml/scoreboard.fxml"));
             javafx.scene.Parent root = loader.load();
 
+            ScoreboardController sc = loader.getController();
             if (sid != null) {
-                ScoreboardController sc = loader.getController();
                 sc.setSessionId(sid);
             }
 
             javafx.stage.Stage s = new javafx.stage.Stage();
             s.setScene(new javafx.scene.Scene(root));
+            // Closing the window drops its live stream.
+            s.setOnHidden(e -> sc.stop());
             s.setTitle(sid != null ? "Scoreboard - Session " + sid : "Scoreboard");
             s.show();
         } catch (Exception e) {
@@ -432,9 +448,8 @@ public class FacultyDashboardController {
             }
 
             try {
-                // Read file to Base64 for sending to backend
-                byte[] fileBytes = java.nio.file.Files.readAllBytes(file.toPath());
-                this.selectedFileBase64 = java.util.Base64.getEncoder().encodeToString(fileBytes);
+                // The file itself is uploaded from disk when generating
+                this.selectedFile = file;
 
                 if (file.getName().toLowerCase().endsWith(".pdf")) {
                     this.selectedMimeType = "application/pdf";
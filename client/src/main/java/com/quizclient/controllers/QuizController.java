@@ -261,6 +261,8 @@ public class QuizController {
 
     private boolean cheated = false;
     private boolean isSubmitted = false;
+    // Reused when a failed submit is retried, so the server can't count it twice.
+    private String submitKey;
 
     @FXML
     public void initialize() {
@@ -324,7 +326,10 @@ public class QuizController {
             // Send cheated flag
             var body = Map.of("sessionId", sessionId, "studentId", studentId, "answers", ans, "cheated", cheated);
 
+            if (submitKey == null)
+                submitKey = UUID.randomUUID().toString();
             var req = ApiClient.jsonRequest("/api/quiz/submit")
+                    .header("Idempotency-Key", submitKey)
                     .POST(HttpRequest.BodyPublishers.ofString(ApiClient.MAPPER.writeValueAsString(body)))
                     .build();
             var resp = http.send(req, HttpResponse.BodyHandlers.ofString());
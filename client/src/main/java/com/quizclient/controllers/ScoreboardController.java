@@ -10,7 +10,7 @@ import java.util.Map;
 import java.io.IOException;
 
 // This controller manages the scoreboard view. 
-// It automatically refreshes every few seconds so the faculty can see scores roll in real-time.
+// It subscribes to the server's live stream so the faculty can see scores roll in real-time.
 public class ScoreboardController {
     @FXML
     public TextField sessionIdField;
@@ -65,20 +65,113 @@ public class ScoreboardController {
     }
 
     private String sessionId;
+    // The live stream while it is connecting and while it is open; both are
+    // dropped when the window closes (see stop()).
+    private volatile java.util.concurrent.CompletableFuture<?> streamRequest;
+    private volatile java.util.stream.Stream<String> streamLines;
+    private volatile boolean stopped;
 
     public void setSessionId(String sessionId) {
         this.sessionId = sessionId;
         sessionIdField.setText(sessionId);
-        startPolling();
+        startLiveUpdates();
     }
 
-    private void startPolling() {
-        javafx.animation.Timeline timeline = new javafx.animation.Timeline(
-                new javafx.animation.KeyFrame(javafx.util.Duration.seconds(5), e -> onLoad()));
-        timeline.setCycleCount(javafx.animation.Animation.INDEFINITE);
-        timeline.play();
-        // Initial load
-        onLoad();
+    /** Closes the live stream and stops reconnecting; call when the window closes. */
+    public void stop() {
+        stopped = true;
+        var request = streamRequest;
+        if (request != null)
+            request.cancel(true);
+        var lines = streamLines;
+        if (lines != null)
+            lines.close();
+    }
+
+    // Subscribe first, then load the table once the server has accepted the
+    // stream. Events are read only after the table is queued for display, and
+    // every delta replaces the row of its student, so a submission made
+    // between the two shows up once instead of being lost.
+    private void startLiveUpdates() {
+        openStream();
+    }
+
+    // Each "submission" event carries one new scoreboard row. If the stream
+    // drops (timeout, server restart) we reconnect, which reloads the table.
+    private void openStream() {
+        var req = HttpRequest.newBuilder()
+                .uri(java.net.URI.create(ApiClient.BASE_URL + "/api/session/" + sessionId + "/scoreboard/stream"))
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+        var response = ApiClient.HTTP.sendAsync(req, HttpResponse.BodyHandlers.ofLines());
+        streamRequest = response;
+        response.thenAccept(resp -> {
+            try (var lines = resp.body()) {
+                if (resp.statusCode() != 200)
+                    return;
+                streamLines = lines;
+                if (stopped)
+                    return;
+                List<Map<String, Object>> rows = fetchRows(sessionId);
+                if (rows != null)
+                    javafx.application.Platform.runLater(() -> table.getItems().setAll(rows));
+                String[] event = { null };
+                lines.forEach(line -> {
+                    if (line.startsWith("event:")) {
+                        event[0] = line.substring(6).trim();
+                    } else if (line.startsWith("data:") && "submission".equals(event[0])) {
+                        applyDelta(line.substring(5).trim());
+                    } else if (line.isEmpty()) {
+                        event[0] = null;
+                    }
+                });
+            }
+        }).whenComplete((r, e) -> javafx.application.Platform.runLater(() -> {
+            if (stopped)
+                return;
+            javafx.animation.PauseTransition retry = new javafx.animation.PauseTransition(
+                    javafx.util.Duration.seconds(5));
+            retry.setOnFinished(ev -> {
+                if (!stopped)
+                    startLiveUpdates();
+            });
+            retry.play();
+        }));
+    }
+
+    private void applyDelta(String json) {
+        try {
+            Map<String, Object> row = ApiClient.MAPPER.readValue(json, new TypeReference<Map<String, Object>>() {
+            });
+            javafx.application.Platform.runLater(() -> {
+                var items = table.getItems();
+                for (int i = 0; i < items.size(); i++) {
+                    if (String.valueOf(items.get(i).get("studentId")).equals(String.valueOf(row.get("studentId")))) {
+                        items.set(i, row);
+                        return;
+                    }
+                }
+                items.add(row);
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // The session's scoreboard rows, or null if they could not be loaded.
+    private List<Map<String, Object>> fetchRows(String sid) {
+        try {
+            var req = ApiClient.jsonRequest("/api/session/" + sid + "/scoreboard").GET().build();
+            var resp = ApiClient.HTTP.send(req, HttpResponse.BodyHandlers.ofString());
+            if (resp.statusCode() == 200) {
+                return ApiClient.MAPPER.readValue(resp.body(), new TypeReference<List<Map<String, Object>>>() {
+                });
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
     }
 
     @FXML
@@ -95,18 +188,10 @@ public class ScoreboardController {
             else
                 return;
         }
-        try {
-            var req = ApiClient.jsonRequest("/api/session/" + sid + "/scoreboard").GET().build();
-            var resp = ApiClient.HTTP.send(req, HttpResponse.BodyHandlers.ofString());
-            if (resp.statusCode() == 200) {
-                List<Map<String, Object>> rows = ApiClient.MAPPER.readValue(resp.body(),
-                        new TypeReference<List<Map<String, Object>>>() {
-                        });
-                table.getItems().clear();
-                table.getItems().addAll(rows);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        List<Map<String, Object>> rows = fetchRows(sid);
+        if (rows != null) {
+            table.getItems().clear();
+            table.getItems().addAll(rows);
         }
     }
 
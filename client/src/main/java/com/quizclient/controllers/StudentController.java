@@ -16,12 +16,17 @@ import java.util.Map;
 public class StudentController {
     @FXML public TextField nameField, enrollmentField;
     @FXML public Label message;
+    // Reused when a failed registration is retried, so it can't register twice.
+    private String registerKey;
 
     @FXML
     public void onRegister() {
         try {
             var body = Map.of("name", nameField.getText(), "enrollment", enrollmentField.getText());
+            if (registerKey == null)
+                registerKey = java.util.UUID.randomUUID().toString();
             var req = ApiClient.jsonRequest("/api/student/register")
+                    .header("Idempotency-Key", registerKey)
                     .POST(HttpRequest.BodyPublishers.ofString(ApiClient.MAPPER.writeValueAsString(body)))
                     .build();
             var resp = ApiClient.HTTP.send(req, HttpResponse.BodyHandlers.ofString());
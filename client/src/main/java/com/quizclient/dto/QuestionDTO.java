@@ -1,5 +1,7 @@
 package com.quizclient.dto;
 
+// The server may send fields this client does not show (e.g. bank tags).
+@com.fasterxml.jackson.annotation.JsonIgnoreProperties(ignoreUnknown = true)
 public class QuestionDTO {
     private Long id;
     private String text;
@@ -97,6 +99,25 @@ public class QuestionDTO {
         this.chapter = chapter;
     }
 
+    private String courseOutcome;
+    private String difficulty;
+
+    public String getCourseOutcome() {
+        return courseOutcome;
+    }
+
+    public void setCourseOutcome(String courseOutcome) {
+        this.courseOutcome = courseOutcome;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
     @Override
     public String toString() {
         return (text == null ? "" : text);
@@ -336,19 +336,32 @@ async function generateQuestions() {
     btn.disabled = true;
 
     try {
-        const response = await fetch(`${API_BASE}/api/syllabus/generate`, {
+        // Questions stream in as Server-Sent Events while the AI writes them,
+        // so the list fills up long before the whole batch is done.
+        const response = await fetch(`${API_BASE}/api/syllabus/generate/stream`, {
             method: 'POST',
             headers: { 'Content-Type': 'application/json' },
             body: JSON.stringify({ text: text, count: count, weights: weights })
         });
 
         if (response.ok) {
-            const newQuestions = await response.json();
-            questions = [...questions, ...newQuestions];
+            let received = 0;
+            await readEventStream(response, (event, data) => {
+                if (event === 'question') {
+                    questions.push(JSON.parse(data));
+                    received++;
+                    renderQuestions();
+                } else if (event === 'progress') {
+                    const p = JSON.parse(data);
+                    btn.innerHTML = `<span class="btn-icon">⏳</span> Generating... ${p.generated}/${p.requested}`;
+                } else if (event === 'error') {
+                    throw new Error(JSON.parse(data).error);
+                }
+            });
             populateFilters();
             renderQuestions();
             refreshStepperState(); // Move to Review
-            alert(`Generated ${newQuestions.length} questions successfully!`);
+            alert(`Generated ${received} questions successfully!`);
         } else {
             const err = await response.text();
             alert("Error generating: " + err);
@@ -362,6 +375,30 @@ async function generateQuestions() {
     }
 }
 
+// Minimal SSE reader for a fetch() response (EventSource cannot POST).
+async function readEventStream(response, onEvent) {
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    while (true) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true });
+        let sep;
+        while ((sep = buffer.search(/\r?\n\r?\n/)) >= 0) {
+            const block = buffer.slice(0, sep);
+            buffer = buffer.slice(sep).replace(/^\r?\n\r?\n/, '');
+            let event = 'message';
+            const data = [];
+            block.split(/\r?\n/).forEach(line => {
+                if (line.startsWith('event:')) event = line.slice(6).trim();
+                else if (line.startsWith('data:')) data.push(line.slice(5));
+            });
+            if (data.length) onEvent(event, data.join('\n'));
+        }
+    }
+}
+
 // Render Questions List
 function renderQuestions(listToRender = null) {
     const list = document.getElementById('questions-list');
@@ -735,28 +772,79 @@ document.querySelectorAll('.nav-btn').forEach(btn => {
 
 
 // Scoreboard
-async function loadScoreboard() {
+function loadScoreboard() {
     const sid = document.getElementById('scoreboard-sess-id').value;
     if (!sid) {
         alert("Enter Session ID");
         return;
     }
 
-    try {
-        const res = await fetch(`${API_BASE}/api/session/${sid}/scoreboard`);
-        if (res.ok) {
-            const data = await res.json();
+    // Render Analytics Dashboard (New)
+    loadSessionAnalytics(sid);
+
+    // The table itself is loaded once the live stream is open.
+    subscribeScoreboard(sid);
+}
+
+// Live scoreboard: new submissions arrive as server-sent "submission" events
+// and are merged into the table. We subscribe first and load the table once
+// the stream is open; events that arrive while that load is in flight are
+// held back and merged into it, so no submission falls between the two.
+let scoreboardStream = null;
+let analyticsRefreshTimer = null;
+
+function mergeScoreboardRow(rows, row) {
+    const idx = rows.findIndex(r => r.studentId === row.studentId);
+    if (idx >= 0) rows[idx] = row;
+    else rows.push(row);
+}
+
+function scheduleAnalyticsRefresh(sid) {
+    // Coalesce analytics refreshes during a submission burst
+    clearTimeout(analyticsRefreshTimer);
+    analyticsRefreshTimer = setTimeout(() => loadSessionAnalytics(sid), 2000);
+}
 
-            // Render Analytics Dashboard (New)
-            loadSessionAnalytics(sid);
+function subscribeScoreboard(sid) {
+    if (scoreboardStream) scoreboardStream.close();
+    const stream = new EventSource(`${API_BASE}/api/session/${sid}/scoreboard/stream`);
+    scoreboardStream = stream;
+    let held = null; // rows received while the table is being loaded
 
+    stream.addEventListener('submission', (e) => {
+        const row = JSON.parse(e.data);
+        if (held) {
+            held.push(row);
+            return;
+        }
+        mergeScoreboardRow(currentScoreboardData, row);
+        renderScoreboard(currentScoreboardData, sid);
+        scheduleAnalyticsRefresh(sid);
+    });
+
+    // Fires on the first connect and again each time EventSource reconnects
+    // on its own; the table is reloaded so nothing missed while disconnected
+    // is lost.
+    stream.addEventListener('open', async () => {
+        held = [];
+        try {
+            const res = await fetch(`${API_BASE}/api/session/${sid}/scoreboard`);
+            if (stream !== scoreboardStream) return;
+            if (!res.ok) {
+                stream.close();
+                alert("Session not found or empty.");
+                return;
+            }
+            const data = await res.json();
+            held.forEach(row => mergeScoreboardRow(data, row));
+            if (held.length > 0) scheduleAnalyticsRefresh(sid);
             renderScoreboard(data, sid);
-        } else {
-            alert("Session not found or empty.");
+        } catch (e) {
+            console.error(e);
+        } finally {
+            held = null;
         }
-    } catch (e) {
-        console.error(e);
-    }
+    });
 }
 
 // Load Session Analytics
@@ -0,0 +1,527 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Load test for the student-facing endpoints of a running backend. Needs
+ * nothing but a JDK (21+):
+ *
+ * <pre>
+ *   java loadtest/LoadTest.java submit --url=http://localhost:8080 --students=500 --concurrency=100
+ * </pre>
+ *
+ * Every run starts its own session, so it can be pointed at a backend that
+ * already holds data. See loadtest/README.md for the scenarios.
+ */
+public class LoadTest {
+
+    private final String url;
+    private final int students;
+    private final int concurrency;
+    private final int prepareConcurrency;
+    private final int questions;
+    private final int sets;
+    private final int warmup;
+    private final HttpClient http;
+    // Keeps enrollments unique across runs against the same database.
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    LoadTest(Map<String, String> opts) {
+        url = opts.getOrDefault("url", "http://localhost:8080").replaceAll("/+$", "");
+        students = Integer.parseInt(opts.getOrDefault("students", "300"));
+        concurrency = Integer.parseInt(opts.getOrDefault("concurrency", "100"));
+        prepareConcurrency = Integer.parseInt(opts.getOrDefault("prepare-concurrency", "50"));
+        questions = Integer.parseInt(opts.getOrDefault("questions", "60"));
+        sets = Integer.parseInt(opts.getOrDefault("sets", "1"));
+        warmup = Integer.parseInt(opts.getOrDefault("warmup", "100"));
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: java loadtest/LoadTest.java exam|join|questions|submit"
+                    + " [--url=http://localhost:8080] [--students=300] [--concurrency=100]"
+                    + " [--prepare-concurrency=50] [--questions=60] [--sets=1] [--warmup=100]");
+            System.exit(2);
+        }
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (String a : Arrays.copyOfRange(args, 1, args.length)) {
+            if (!a.startsWith("--") || !a.contains("="))
+                throw new IllegalArgumentException("bad option " + a);
+            opts.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+        }
+        LoadTest t = new LoadTest(opts);
+        switch (args[0]) {
+            case "exam" -> t.exam();
+            case "join" -> t.join();
+            case "questions" -> t.questions();
+            case "submit" -> t.submit();
+            default -> {
+                System.err.println("unknown scenario " + args[0]);
+                System.exit(2);
+            }
+        }
+    }
+
+    // ---- scenarios ------------------------------------------------------
+
+    /**
+     * Whole exams: each student registers, fetches the questions and submits,
+     * with --concurrency students in progress at a time. Every step is timed.
+     */
+    void exam() throws Exception {
+        warmUp();
+        Session s = startSession("loadtest exam");
+        Phase register = new Phase("register");
+        Phase fetch = new Phase("questions");
+        Phase submit = new Phase("submit");
+        long start = System.nanoTime();
+        run(students, concurrency, i -> {
+            Student st = new Student(i);
+            register.time(() -> register(s, st));
+            if (st.id == 0)
+                return;
+            fetch.time(() -> fetchQuestions(s, st));
+            if (st.questionIds == null)
+                return;
+            submit.time(() -> submit(s, st));
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-13s %d of %d students finished in %.1fs = %.1f students/s%n", "exam",
+                submit.count.get(), students, seconds, submit.count.get() / seconds);
+        register.report();
+        fetch.report();
+        submit.report();
+    }
+
+    /**
+     * The class joins with the session code: every student checks the OTP
+     * ({@code /api/session/join}), then registers (which checks it again).
+     */
+    void join() throws Exception {
+        warmUp();
+        Session s = startSession("loadtest join");
+        Phase join = new Phase("session/join");
+        run(students, concurrency, i -> join.time(() -> post("/api/session/join",
+                Map.of("sessionId", s.id(), "otp", s.otp()))));
+        Student[] all = new Student[students];
+        Phase register = new Phase("register");
+        run(students, concurrency, i -> register.time(() -> {
+            all[i] = new Student(i);
+            register(s, all[i]);
+        }));
+        join.report();
+        register.report();
+    }
+
+    /** The class opens the exam together: only the question fetches are timed. */
+    void questions() throws Exception {
+        warmUp();
+        Session s = startSession("loadtest questions");
+        Student[] joined = prepare(s, false);
+        Phase fetch = new Phase("questions");
+        run(students, concurrency, i -> fetch.time(() -> fetchQuestions(s, joined[i])));
+        fetch.report();
+        long bytes = 0;
+        for (Student st : joined)
+            bytes += st.questionBytes;
+        System.out.printf("  payload: %d bytes per student on average%n", bytes / students);
+    }
+
+    /** Everyone hands in at the bell: only the submits are timed. */
+    void submit() throws Exception {
+        warmUp();
+        Session s = startSession("loadtest submit");
+        Student[] joined = prepare(s, true);
+        Phase submit = new Phase("submit");
+        run(students, concurrency, i -> submit.time(() -> submit(s, joined[i])));
+        submit.report();
+    }
+
+    // ---- steps ----------------------------------------------------------
+
+    record Session(long id, String otp) {
+    }
+
+    static final class Student {
+        final int n;
+        long id;
+        List<Long> questionIds;
+        int questionBytes;
+
+        Student(int n) {
+            this.n = n;
+        }
+    }
+
+    Session startSession(String title) throws Exception {
+        List<Object> qs = new ArrayList<>();
+        for (int i = 0; i < questions; i++) {
+            Map<String, Object> q = new LinkedHashMap<>();
+            q.put("text", "Load test question " + i + " (" + runId + ")");
+            q.put("optionA", "Option A of " + i);
+            q.put("optionB", "Option B of " + i);
+            q.put("optionC", "Option C of " + i);
+            q.put("optionD", "Option D of " + i);
+            q.put("correct", String.valueOf("ABCD".charAt(i % 4)));
+            q.put("explanation", "Explanation of question " + i);
+            q.put("chapter", "Chapter " + (i % 5 + 1));
+            q.put("courseOutcome", "CO" + (i % 4 + 1));
+            qs.add(q);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("title", title);
+        body.put("questions", qs);
+        body.put("numberOfSets", sets);
+        Map<?, ?> r = (Map<?, ?>) post("/api/session/start", body);
+        return new Session(((Number) r.get("sessionId")).longValue(), r.get("otp").toString());
+    }
+
+    void register(Session s, Student st) throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("name", "Student " + st.n);
+        body.put("enrollment", "LT" + runId + "-" + st.n);
+        body.put("sessionId", String.valueOf(s.id()));
+        body.put("otp", s.otp());
+        Map<?, ?> r = (Map<?, ?>) post("/api/student/register", body);
+        st.id = ((Number) r.get("studentId")).longValue();
+    }
+
+    void fetchQuestions(Session s, Student st) throws Exception {
+        String body = send(HttpRequest.newBuilder(URI.create(url + "/api/session/" + s.id()
+                + "/questions?studentId=" + st.id)).GET());
+        st.questionBytes = body.length();
+        List<?> qs = (List<?>) Json.parse(body);
+        List<Long> ids = new ArrayList<>(qs.size());
+        for (Object q : qs)
+            ids.add(((Number) ((Map<?, ?>) q).get("id")).longValue());
+        st.questionIds = ids;
+    }
+
+    void submit(Session s, Student st) throws Exception {
+        List<Object> answers = new ArrayList<>(st.questionIds.size());
+        for (Long qid : st.questionIds)
+            answers.add(Map.of("questionId", qid,
+                    "selectedOption", String.valueOf("ABCD".charAt(ThreadLocalRandom.current().nextInt(4)))));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("sessionId", s.id());
+        body.put("studentId", st.id);
+        body.put("answers", answers);
+        post("/api/quiz/submit", body);
+    }
+
+    // Registers every student and, if asked, fetches their questions; untimed,
+    // and at --prepare-concurrency so the setup does not swamp the backend.
+    Student[] prepare(Session s, boolean withQuestions) throws Exception {
+        Student[] all = new Student[students];
+        Phase prep = new Phase("prepare");
+        run(students, prepareConcurrency, i -> prep.time(() -> {
+            all[i] = new Student(i);
+            register(s, all[i]);
+            if (withQuestions)
+                fetchQuestions(s, all[i]);
+        }));
+        if (prep.errors.get() > 0)
+            throw new IllegalStateException(prep.errors.get() + " students could not be prepared: " + prep.firstError);
+        return all;
+    }
+
+    // A short untimed exam on its own session so the JIT and the pools are warm.
+    void warmUp() throws Exception {
+        if (warmup <= 0)
+            return;
+        Session s = startSession("loadtest warmup");
+        run(warmup, Math.min(Math.min(concurrency, prepareConcurrency), warmup), i -> {
+            Student st = new Student(i);
+            try {
+                register(s, st);
+                fetchQuestions(s, st);
+                submit(s, st);
+            } catch (Exception e) {
+                // Reported by the timed run if it persists.
+            }
+        });
+    }
+
+    // ---- plumbing -------------------------------------------------------
+
+    interface Step {
+        void run() throws Exception;
+    }
+
+    /** Latencies and errors of one kind of request. */
+    static final class Phase {
+        final String name;
+        final long[] nanos = new long[1 << 20];
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+        volatile String firstError;
+        volatile long startedAt;
+        volatile long endedAt;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        void time(Step step) {
+            long t0 = System.nanoTime();
+            if (startedAt == 0)
+                startedAt = t0;
+            try {
+                step.run();
+                long t1 = System.nanoTime();
+                int i = count.getAndIncrement();
+                if (i < nanos.length)
+                    nanos[i] = t1 - t0;
+                endedAt = Math.max(endedAt, t1);
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                if (firstError == null)
+                    firstError = e.getMessage();
+            }
+        }
+
+        void report() {
+            int n = Math.min(count.get(), nanos.length);
+            long[] sorted = Arrays.copyOf(nanos, n);
+            Arrays.sort(sorted);
+            double seconds = n == 0 ? 0 : (endedAt - startedAt) / 1e9;
+            System.out.printf("%-13s n=%d errors=%d  %.1f/s  p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms%n",
+                    name, n, errors.get(), seconds > 0 ? n / seconds : 0, ms(sorted, 0.50), ms(sorted, 0.90),
+                    ms(sorted, 0.99), ms(sorted, 1.0));
+            if (firstError != null)
+                System.out.println("  first error: " + firstError);
+        }
+
+        private static double ms(long[] sorted, double q) {
+            if (sorted.length == 0)
+                return 0;
+            int i = (int) Math.ceil(q * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+        }
+    }
+
+    // Runs task(0..n-1) with at most `limit` in flight, one virtual thread each.
+    static void run(int n, int limit, IntConsumer task) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(limit);
+        try (ExecutorService ex = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < n; i++) {
+                inFlight.acquire();
+                int idx = i;
+                ex.execute(() -> {
+                    try {
+                        task.accept(idx);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+    }
+
+    Object post(String path, Object body) throws Exception {
+        return Json.parse(send(HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(Json.write(body)))));
+    }
+
+    private String send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<String> r = http.send(request.timeout(Duration.ofSeconds(120)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (r.statusCode() / 100 != 2) {
+            String body = r.body();
+            throw new IllegalStateException(r.request().uri().getPath() + " -> " + r.statusCode() + " "
+                    + body.substring(0, Math.min(200, body.length())));
+        }
+        return r.body();
+    }
+
+    /** Just enough JSON for the request and response bodies used here. */
+    static final class Json {
+        private final String s;
+        private int pos;
+
+        private Json(String s) {
+            this.s = s;
+        }
+
+        static Object parse(String s) {
+            Json p = new Json(s);
+            Object v = p.value();
+            p.ws();
+            if (p.pos != s.length())
+                throw new IllegalArgumentException("trailing data at " + p.pos);
+            return v;
+        }
+
+        static String write(Object v) {
+            StringBuilder sb = new StringBuilder();
+            write(v, sb);
+            return sb.toString();
+        }
+
+        private static void write(Object v, StringBuilder sb) {
+            if (v == null) {
+                sb.append("null");
+            } else if (v instanceof Map<?, ?> m) {
+                sb.append('{');
+                boolean first = true;
+                for (Map.Entry<?, ?> e : m.entrySet()) {
+                    if (!first)
+                        sb.append(',');
+                    first = false;
+                    write(e.getKey().toString(), sb);
+                    sb.append(':');
+                    write(e.getValue(), sb);
+                }
+                sb.append('}');
+            } else if (v instanceof List<?> l) {
+                sb.append('[');
+                for (int i = 0; i < l.size(); i++) {
+                    if (i > 0)
+                        sb.append(',');
+                    write(l.get(i), sb);
+                }
+                sb.append(']');
+            } else if (v instanceof Number || v instanceof Boolean) {
+                sb.append(v);
+            } else {
+                sb.append('"');
+                for (char c : v.toString().toCharArray()) {
+                    switch (c) {
+                        case '"' -> sb.append("\\\"");
+                        case '\\' -> sb.append("\\\\");
+                        case '\n' -> sb.append("\\n");
+                        case '\r' -> sb.append("\\r");
+                        case '\t' -> sb.append("\\t");
+                        default -> {
+                            if (c < 0x20)
+                                sb.append(String.format("\\u%04x", (int) c));
+                            else
+                                sb.append(c);
+                        }
+                    }
+                }
+                sb.append('"');
+            }
+        }
+
+        private Object value() {
+            ws();
+            char c = s.charAt(pos);
+            switch (c) {
+                case '{': {
+                    pos++;
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    ws();
+                    if (s.charAt(pos) == '}') {
+                        pos++;
+                        return m;
+                    }
+                    while (true) {
+                        ws();
+                        String k = string();
+                        ws();
+                        expect(':');
+                        m.put(k, value());
+                        ws();
+                        if (s.charAt(pos++) == '}')
+                            return m;
+                    }
+                }
+                case '[': {
+                    pos++;
+                    List<Object> l = new ArrayList<>();
+                    ws();
+                    if (s.charAt(pos) == ']') {
+                        pos++;
+                        return l;
+                    }
+                    while (true) {
+                        l.add(value());
+                        ws();
+                        if (s.charAt(pos++) == ']')
+                            return l;
+                    }
+                }
+                case '"':
+                    return string();
+                case 't':
+                    pos += 4;
+                    return Boolean.TRUE;
+                case 'f':
+                    pos += 5;
+                    return Boolean.FALSE;
+                case 'n':
+                    pos += 4;
+                    return null;
+                default: {
+                    int start = pos;
+                    while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0)
+                        pos++;
+                    String num = s.substring(start, pos);
+                    if (num.isEmpty())
+                        throw new IllegalArgumentException("unexpected '" + c + "' at " + start);
+                    if (num.contains(".") || num.contains("e") || num.contains("E"))
+                        return Double.parseDouble(num);
+                    return Long.parseLong(num);
+                }
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = s.charAt(pos++);
+                if (c == '"')
+                    return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> sb.append(e);
+                }
+            }
+        }
+
+        private void expect(char c) {
+            if (s.charAt(pos) != c)
+                throw new IllegalArgumentException("expected '" + c + "' at " + pos);
+            pos++;
+        }
+
+        private void ws() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+                pos++;
+        }
+    }
+}
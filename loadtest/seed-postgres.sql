@@ -0,0 +1,24 @@
+-- Adds :rows students and :rows submissions of made-up history (past
+-- sessions of 100 students each) to a server-profile database, so the load
+-- test can check that registration and submission stay flat as the tables
+-- grow:
+--
+--   psql "postgresql://quiz@localhost/quiz" -v rows=1000000 -f loadtest/seed-postgres.sql
+--
+-- The rows use session ids from 1,000,000,000 up and negative submission
+-- ids, so they never collide with what the application creates. To remove
+-- them:
+--
+--   delete from submission where session_id >= 1000000000;
+--   delete from student where session_id >= 1000000000;
+
+insert into student (name, enrollment, session_id)
+select 'Seeded ' || g, 'SEED' || g, 1000000000 + g / 100
+from generate_series(1, :rows) g;
+
+insert into submission (id, session_id, student_id, score, question_set, cheated, submitted_at)
+select -g, 1000000000 + g / 100, g, g % 61, 'Set A', false, now() - make_interval(mins => g % 100000)
+from generate_series(1, :rows) g;
+
+analyze student;
+analyze submission;
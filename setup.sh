@@ -10,7 +10,7 @@ echo "========================================"
 # 1. Check Java
 if ! command -v java &> /dev/null; then
     echo "❌ Java is not installed."
-    echo "   Please install JDK 17+ and try again."
+    echo "   Please install JDK 21+ and try again."
     exit 1
 fi
 echo "✅ Java found: $(java -version 2>&1 | head -n 1)"
@@ -28,9 +28,11 @@ class APIClient {
      */
     async request(endpoint, options = {}) {
         const url = `${this.baseURL}${endpoint}`;
+        // Headers are merged last: a caller's extra headers (e.g. an
+        // Idempotency-Key) must not replace the default Content-Type.
         const config = {
-            headers: { ...this.defaultHeaders, ...options.headers },
             ...options,
+            headers: { ...this.defaultHeaders, ...options.headers },
         };
 
         try {
@@ -154,9 +156,11 @@ const studentAPI = {
     /**
      * Register and join a session
      * @param {object} data - Registration data
+     * @param {string} [idempotencyKey] - Same key on a retry returns the original registration
      * @returns {Promise<any>}
      */
-    register: (data) => api.post('/api/student/register', data),
+    register: (data, idempotencyKey) => api.post('/api/student/register', data,
+        idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : {}),
 
     /**
      * Login student
@@ -277,9 +281,11 @@ const quizAPI = {
     /**
      * Submit quiz answers
      * @param {object} data - Quiz submission data
+     * @param {string} [idempotencyKey] - Same key on a retry returns the original score
      * @returns {Promise<any>}
      */
-    submit: (data) => api.post('/api/quiz/submit', data),
+    submit: (data, idempotencyKey) => api.post('/api/quiz/submit', data,
+        idempotencyKey ? { headers: { 'Idempotency-Key': idempotencyKey } } : {}),
 
     /**
      * Get quiz results
@@ -210,7 +210,8 @@ async function handleJoinSession(event) {
     joinSpinner.classList.remove('hidden');
 
     try {
-        const data = await studentAPI.register({ name, enrollment, sessionId, otp });
+        const data = await studentAPI.register({ name, enrollment, sessionId, otp },
+            getIdempotencyKey(`register:${sessionId}:${enrollment}`));
 
         if (data) {
             studentId = data.studentId;
@@ -472,7 +473,7 @@ async function submitQuiz(autoSubmit = false) {
     };
 
     try {
-        const data = await quizAPI.submit(payload);
+        const data = await quizAPI.submit(payload, getIdempotencyKey(`submit:${sessionId}:${studentId}`));
 
         if (data) {
             displayResults(data);
@@ -355,3 +355,77 @@ describe('Keyboard Navigation', () => {
         expect(nextIndex).toBe(59);
     });
 });
+
+// Test Suite: Idempotency Keys
+describe('Idempotency Keys', () => {
+
+    let store;
+
+    beforeEach(() => {
+        store = new Map();
+        Object.defineProperty(window, 'sessionStorage', {
+            configurable: true,
+            value: {
+                getItem: (k) => (store.has(k) ? store.get(k) : null),
+                setItem: (k, v) => store.set(k, String(v)),
+                removeItem: (k) => store.delete(k),
+                clear: () => store.clear(),
+            },
+        });
+    });
+
+    test('Retrying a submission reuses its key', () => {
+        expect(getIdempotencyKey('submit:1:7')).toBe(getIdempotencyKey('submit:1:7'));
+    });
+
+    test('Different students get different keys', () => {
+        expect(getIdempotencyKey('submit:1:7')).not.toBe(getIdempotencyKey('submit:1:8'));
+    });
+
+    test('Key is kept in sessionStorage so a reload sends the same one', () => {
+        const key = getIdempotencyKey('register:1:E1');
+        expect(store.get('idem:register:1:E1')).toBe(key);
+        store.set('idem:register:1:E2', 'stored-key');
+        expect(getIdempotencyKey('register:1:E2')).toBe('stored-key');
+    });
+});
+
+// Test Suite: API Request Headers
+describe('API Request Headers', () => {
+
+    let sent;
+
+    beforeEach(() => {
+        sent = [];
+        global.fetch = jest.fn((url, config) => {
+            sent.push({ url, config });
+            return Promise.resolve({
+                ok: true,
+                status: 200,
+                headers: { get: () => 'application/json' },
+                json: () => Promise.resolve({}),
+            });
+        });
+    });
+
+    test('Submit sends the idempotency key and still sends JSON', async () => {
+        await quizAPI.submit({ sessionId: 1, studentId: 7, answers: [] }, 'key-1');
+        const headers = sent[0].config.headers;
+        expect(headers['Idempotency-Key']).toBe('key-1');
+        expect(headers['Content-Type']).toBe('application/json');
+        expect(sent[0].config.method).toBe('POST');
+    });
+
+    test('Register sends the idempotency key and still sends JSON', async () => {
+        await studentAPI.register({ name: 'A', enrollment: 'E1', sessionId: '1', otp: '123456' }, 'key-2');
+        const headers = sent[0].config.headers;
+        expect(headers['Idempotency-Key']).toBe('key-2');
+        expect(headers['Content-Type']).toBe('application/json');
+    });
+
+    test('Requests without extra headers keep the defaults', async () => {
+        await studentAPI.login({ email: 'a@b.c', password: 'secret1' });
+        expect(sent[0].config.headers['Content-Type']).toBe('application/json');
+        expect(sent[0].config.headers['Idempotency-Key']).toBeUndefined();
+    });
+});
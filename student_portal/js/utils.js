@@ -295,6 +295,23 @@ function generateUUID() {
     });
 }
 
+/**
+ * Idempotency key for one logical request (e.g. submitting a given quiz).
+ * Kept in sessionStorage so retries and page reloads send the same key and
+ * the server answers them with the original result.
+ * @param {string} scope - Identifies the request, e.g. `submit:12:34`
+ * @returns {string}
+ */
+function getIdempotencyKey(scope) {
+    const storageKey = `idem:${scope}`;
+    let key = sessionStorage.getItem(storageKey);
+    if (!key) {
+        key = generateUUID();
+        sessionStorage.setItem(storageKey, key);
+    }
+    return key;
+}
+
 /**
  * Copy text to clipboard
  * @param {string} text - Text to copy